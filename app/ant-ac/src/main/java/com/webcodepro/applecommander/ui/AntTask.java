@@ -29,6 +29,7 @@ import com.webcodepro.applecommander.storage.os.nakedos.NakedosDiskFactory;
 import com.webcodepro.applecommander.storage.os.pascal.PascalDiskFactory;
 import com.webcodepro.applecommander.storage.os.prodos.ProdosDiskFactory;
 import com.webcodepro.applecommander.storage.os.rdos.RdosDiskFactory;
+import com.webcodepro.applecommander.storage.os.shrinkit.ShrinkitDiskFactory;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 import org.applecommander.image.DiskCopyImage;
@@ -68,7 +69,7 @@ public class AntTask extends Task
 		Sources.setFactories(new FileSource.Factory(), new UniversalDiskImage.Factory(), new DiskCopyImage.Factory(),
 				new FileEntrySource.Factory(), new ShrinkitSourceFactory());
 		Disks.setFactories(new CpmDiskFactory(), new DosDiskFactory(), new GutenbergDiskFactory(),
-                new NakedosDiskFactory(), new PascalDiskFactory(), new ProdosDiskFactory(), new RdosDiskFactory());
+                new NakedosDiskFactory(), new PascalDiskFactory(), new ProdosDiskFactory(), new RdosDiskFactory(), new ShrinkitDiskFactory());
 	}
 
 	public void execute() throws BuildException
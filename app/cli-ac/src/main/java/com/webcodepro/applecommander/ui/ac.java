@@ -226,14 +226,20 @@ public class ac {
 				.filter(ft -> "A".equalsIgnoreCase(ft) || "BAS".equalsIgnoreCase(ft))
 				.findFirst()
 				.orElse("A");
-		FileEntry entry = name.createEntry(formattedDisk);
-		if (entry != null) {
+		boolean written = writeBatch(formattedDisk, () -> {
+			FileEntry entry = name.createEntry(formattedDisk);
+			if (entry == null) {
+				return false;
+			}
 			entry.setFiletype(fileType);
 			entry.setFilename(formattedDisk.getSuggestedFilename(name.name));
 			entry.setFileData(data);
 			if (entry.needsAddress()) {
 				entry.setAddress(config.startAddress);
 			}
+			return true;
+		});
+		if (written) {
 			save(formattedDisk);
 		}
 	}
@@ -259,14 +265,20 @@ public class ac {
             Source source = Sources.create(Path.of(imageName)).orElseThrow();
             DiskFactory.Context ctx = Disks.inspect(source);
 			FormattedDisk formattedDisk = ctx.disks.getFirst();
-			FileEntry entry = name.createEntry(formattedDisk);
-			if (entry != null) {
+			boolean written = writeBatch(formattedDisk, () -> {
+				FileEntry entry = name.createEntry(formattedDisk);
+				if (entry == null) {
+					return false;
+				}
 				entry.setFiletype(fileType);
 				entry.setFilename(formattedDisk.getSuggestedFilename(name.name));
 				entry.setFileData(buf.toByteArray());
 				if (entry.needsAddress()) {
 					entry.setAddress(stringToInt(address));
 				}
+				return true;
+			});
+			if (written) {
 				save(formattedDisk);
 			}
 		}
@@ -300,6 +312,34 @@ public class ac {
         putFile(imageName, name, "TXT", "0", TranslatorStream.builder(System.in).lfToCr().clearHighBit().get());
     }
 
+	/**
+	 * Run the writes for a new file as one batch when the disk supports it, so the
+	 * directory and allocation map are written to the image once.
+	 * @return the result of the writer; false if no entry could be created
+	 */
+	static boolean writeBatch(FormattedDisk formattedDisk, BatchWriter writer) throws IOException, DiskException {
+		boolean batch = formattedDisk.supportsBatch();
+		if (batch) formattedDisk.beginBatch();
+		boolean written;
+		try {
+			written = writer.write();
+			if (batch) formattedDisk.commit();
+		} catch (IOException | DiskException | RuntimeException e) {
+			// a failed commit leaves the batch open, so it is rolled back as well
+			if (batch) formattedDisk.rollback();
+			throw e;
+		}
+		return written;
+	}
+
+	/**
+	 * The writes that make up a batch.
+	 */
+	@FunctionalInterface
+	interface BatchWriter {
+		boolean write() throws IOException, DiskException;
+	}
+
 	/**
 	 * Put InputStream into the file named fileName on the disk named imageName;
 	 * Note: only volume level supported; input size unlimited.
@@ -315,14 +355,20 @@ public class ac {
 			System.out.println("Dude, formattedDisks is null!");
 		FormattedDisk formattedDisk = ctx.disks.getFirst();
         if (!source.isAny(Hint.DISK_COPY_IMAGE, Hint.ORIGIN_SHRINKIT, Hint.UNIVERSAL_DISK_IMAGE)) {
-			FileEntry entry = name.createEntry(formattedDisk);
-			if (entry != null) {
+			boolean written = writeBatch(formattedDisk, () -> {
+				FileEntry entry = name.createEntry(formattedDisk);
+				if (entry == null) {
+					return false;
+				}
 				entry.setFiletype(fileType);
 				entry.setFilename(formattedDisk.getSuggestedFilename(name.name));
 				entry.setFileData(buf.toByteArray());
 				if (entry.needsAddress()) {
 					entry.setAddress(stringToInt(address));
 				}
+				return true;
+			});
+			if (written) {
 				save(formattedDisk);
 			} else {
 				throw new IOException("Unable to create entry...");
@@ -336,6 +382,7 @@ public class ac {
 	/**
 	 * Put file fileName into the file named fileOnImageName on the disk named imageName;
 	 * Assume a cc65 style four-byte header with start address in bytes 0-1.
+	 * The write itself is batched by putFile.
 	 */
 	public static void putDOS(String fileName, String imageName, String fileOnImageName, String fileType)
 		throws IOException, DiskException {
@@ -350,6 +397,7 @@ public class ac {
 	/**
 	 * Put &lt;stdin> into the file named fileName on the disk named imageName;
 	 * Assume an DOS 3.x style four-byte header with start address in bytes 0-1.
+	 * The write itself is batched by putFile.
 	 */
 	static void putDOS(String imageName, Name name, String fileType)
 		throws IOException, DiskException {
@@ -368,7 +416,8 @@ public class ac {
 		putAppleSingle(imageName, fileName, System.in);
 	}
 	/**
-	 * AppleSingle shim to allow for unit testing.
+	 * AppleSingle shim to allow for unit testing.  Only the data fork is written,
+	 * as one batch, by putFile.
 	 */
 	public static void putAppleSingle(String imageName, String fileName, InputStream inputStream) 
 			throws IOException, DiskException {
@@ -395,7 +444,8 @@ public class ac {
 
 	/**
 	 * Interpret &lt;stdin> as a GEOS file and place it on the disk named imageName.
-	 * This would only make sense for a ProDOS-formatted disk.
+	 * This would only make sense for a ProDOS-formatted disk.  Like the other put
+	 * commands, this goes through putFile and so is written as one batch.
 	 */
 	static void putGEOS(String imageName)
 		throws IOException, DiskException {
@@ -47,7 +47,7 @@ public abstract class ReusableCommandOptions implements Callable<Integer> {
     public void saveDisk(FormattedDisk disk, BackupStrategy backupStrategy) {
         try {
             // Only save if there are changes.
-            if (disk.getSource().hasChanged()) {
+            if (disk.hasChanged()) {
                 LOG.fine(() -> String.format("Saving disk '%s'", disk.getFilename()));
                 backupStrategy.backup(disk.getFilename());
                 disk.save();
@@ -107,7 +107,7 @@ public class ExportCommand extends ReadOnlyDiskImageCommandOptions {
     public void writeToStdout(FileTuple tuple) {
         try {
             FileFilter ff = extraction.extractFunction.apply(tuple.fileEntry);
-            System.out.write(ff.filter(tuple.fileEntry));
+            ff.filter(tuple.fileEntry, System.out);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -125,7 +125,7 @@ public class ExportCommand extends ReadOnlyDiskImageCommandOptions {
         }
         LOG.info(String.format("Writing to '%s'", file.getPath()));
         try (OutputStream out = new FileOutputStream(file)) {
-            out.write(ff.filter(tuple.fileEntry));
+            ff.filter(tuple.fileEntry, out);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
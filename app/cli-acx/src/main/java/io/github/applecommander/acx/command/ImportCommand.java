@@ -21,6 +21,7 @@ package io.github.applecommander.acx.command;
 
 import com.webcodepro.applecommander.storage.DirectoryEntry;
 import com.webcodepro.applecommander.storage.FileEntry;
+import com.webcodepro.applecommander.storage.FormattedDisk;
 import com.webcodepro.applecommander.storage.os.prodos.ProdosFormatDisk;
 import com.webcodepro.applecommander.util.AppleUtil;
 import com.webcodepro.applecommander.util.StreamUtil;
@@ -95,7 +96,8 @@ public class ImportCommand extends ReadWriteDiskCommandOptions {
             }
         }
 
-        DirectoryEntry directory = selectedDisks().getFirst();
+        FormattedDisk disk = selectedDisks().getFirst();
+        DirectoryEntry directory = disk;
         if (directoryName.isPresent()) {
             String[] dirs = directoryName.get().split("/");
             for (String dir : dirs) {
@@ -113,15 +115,25 @@ public class ImportCommand extends ReadWriteDiskCommandOptions {
 
         FileUtils copier = new FileUtils(overwriteFlag);
         FileEntryReader inputReader = inputData.get();
-        for (FileEntryReader processorReader : processor.apply(inputReader)) {
-            FileEntryReader reader = OverrideFileEntryReader.builder()
-                    .filename(overrides.fileName)
-                    .prodosFiletype(overrides.fileType)
-                    .binaryAddress(overrides.fileAddress)
-                    .auxiliaryType(overrides.auxType)
-                    .build(processorReader);
-            
-            copier.copyFile(directory, reader);
+        // Archives can hold many files; batch the writes so the allocation map is written once
+        boolean batch = disk.supportsBatch();
+        if (batch) disk.beginBatch();
+        try {
+            for (FileEntryReader processorReader : processor.apply(inputReader)) {
+                FileEntryReader reader = OverrideFileEntryReader.builder()
+                        .filename(overrides.fileName)
+                        .prodosFiletype(overrides.fileType)
+                        .binaryAddress(overrides.fileAddress)
+                        .auxiliaryType(overrides.auxType)
+                        .build(processorReader);
+
+                copier.copyFile(directory, reader);
+            }
+            if (batch) disk.commit();
+        } catch (Exception e) {
+            // a failed commit leaves the batch open, so it is rolled back as well
+            if (batch) disk.rollback();
+            throw e;
         }
         
         return 0;
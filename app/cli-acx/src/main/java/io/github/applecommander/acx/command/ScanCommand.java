@@ -38,12 +38,24 @@ import org.applecommander.source.Sources;
 
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Reader;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -52,6 +64,23 @@ import static picocli.CommandLine.*;
 @Command(name = "scan", description = "Scan directory and report on disks found and understood.")
 public class ScanCommand extends ReusableCommandOptions {
     private static final Logger LOG = Logger.getLogger(ScanCommand.class.getName());
+    /**
+     * Identifies the code that builds scan reports: a digest of the ac-api and acx classes, recorded by
+     * the build. Incremental scans only reuse reports stamped with this id. This is null when not running
+     * from a packaged build (such as from an IDE).
+     */
+    static final String SCAN_ID = readScanId();
+
+    private static String readScanId() {
+        try (InputStream inputStream = ScanCommand.class.getResourceAsStream("scan.properties")) {
+            if (inputStream == null) return null;
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            return properties.getProperty("scan.id");
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
     @Parameters(arity = "*", description = "directories to scan")
     private List<Path> directories;
@@ -69,6 +98,18 @@ public class ScanCommand extends ReusableCommandOptions {
     @Option(names = { "--strict" }, description = "Make all blocks/sectors failures an error", defaultValue = "false")
     private boolean strict;
 
+    @Option(names = { "--incremental" }, description = "Reuse prior report entries (see --compare-to) for unchanged images; "
+            + "without directories, rescan the images named in the prior report", defaultValue = "false")
+    private boolean incremental;
+
+    @Option(names = { "--threads" }, description = "Number of images to scan concurrently", defaultValue = "1")
+    private int threads;
+
+    @Option(names = { "--parallel" }, description = "Scan images concurrently, one per available processor")
+    private void parallel(boolean flag) {
+        threads = Runtime.getRuntime().availableProcessors();
+    }
+
     private BiPredicate<ImageReport, ImageReport> degradationFn = this::degradationBySuccessFlag;
     @Option(names = { "--numbers" }, description = "Compare reports by numbers instead of success flag")
     private void detectDegradationByNumbers(boolean flag) {
@@ -82,52 +123,109 @@ public class ScanCommand extends ReusableCommandOptions {
             output = new PrintStream(Files.newOutputStream(reportPath));
         }
 
-        FileVisitor visitor = new FileVisitor(output, progress, strict);
-        if (priorReportPath != null) {
-            compare(visitor);
-        }
+        try (FileVisitor visitor = new FileVisitor(output, progress, strict, threads)) {
+            Comparison comparison = null;
+            List<ImageReport> priorImages = List.of();
+            if (incremental) {
+                if (priorReportPath == null) {
+                    throw new RuntimeException("Incremental scans require a prior report (--compare-to)");
+                }
+                if (SCAN_ID == null) {
+                    throw new RuntimeException("Incremental scans require a packaged build (no scan id available)");
+                }
+                priorImages = readReports(priorReportPath);
+                Map<String,ImageReport> priorReports = new HashMap<>();
+                for (ImageReport imageReport : priorImages) {
+                    priorReports.put(imageReport.imageName, imageReport);
+                }
+                // Rescanned images are compared as the walk produces them; reused reports are unchanged by definition
+                comparison = new Comparison();
+                visitor.setPriorReports(priorReports, SCAN_ID, comparison::add);
+            }
+            else if (priorReportPath != null) {
+                compare(visitor);
+            }
 
-        if (directories != null) {
-            for (Path dir : directories) {
-                Files.walkFileTree(dir, visitor);
+            if (directories != null || incremental) {
+                if (directories != null) {
+                    for (Path dir : directories) {
+                        Files.walkFileTree(dir, visitor);
+                    }
+                }
+                else {
+                    // Without directories, an incremental scan revisits the images of the prior report
+                    for (ImageReport prior : priorImages) {
+                        visitor.visitImage(Path.of(prior.imageName));
+                    }
+                }
+                visitor.drain();
+                showReportData(visitor.reportSummary);
+                System.out.printf("Scanned %d disk images.\n", visitor.getCounter());
+            }
+            if (comparison != null) {
+                System.out.printf("Reused %d unchanged image reports.\n", visitor.getReused());
+                comparison.print();
             }
-            showReportData(visitor.reportSummary);
-            System.out.printf("Scanned %d disk images.\n", visitor.getCounter());
         }
         return 0;
     }
 
-    public void compare(FileVisitor visitor) {
-        try (Reader reader = new FileReader(priorReportPath.toFile())) {
+    /** Read all image reports from a prior scan. */
+    public static List<ImageReport> readReports(Path path) throws IOException {
+        try (Reader reader = new FileReader(path.toFile())) {
             Gson gson = new GsonBuilder().create();
             JsonStreamParser parser = new JsonStreamParser(reader);
-            ReportSummary oldData = new ReportSummary("Old");
-            ReportSummary newData = new ReportSummary("New");
-            int degradationCount = 0;
-            int improvementCount = 0;
+            List<ImageReport> reports = new ArrayList<>();
             while (parser.hasNext()) {
-                ImageReport oldImageReport = gson.fromJson(parser.next(), ImageReport.class);
-                oldImageReport.fixup();
-                ImageReport newImageReport = visitor.scanFile(Path.of(oldImageReport.imageName));
-                oldData.tallyData(oldImageReport);
-                newData.tallyData(newImageReport);
-                if (degradationFn.test(oldImageReport, newImageReport)) {
-                    degradationCount++;
-                    List<String> diffs = diffReport(oldImageReport, newImageReport);
-                    if (!diffs.isEmpty()) {
-                        System.out.printf("Degradation with: %s (%s)\n", oldImageReport.imageName, String.join(",", diffs));
-                    }
-                }
-                else if (!oldImageReport.success && newImageReport.success) {
-                    improvementCount++;
+                ImageReport imageReport = gson.fromJson(parser.next(), ImageReport.class);
+                imageReport.fixup();
+                reports.add(imageReport);
+            }
+            return reports;
+        }
+    }
+
+    public void compare(FileVisitor visitor) {
+        try {
+            Comparison comparison = new Comparison();
+            for (ImageReport oldImageReport : readReports(priorReportPath)) {
+                // Results are handed back in report order, even when scanning concurrently
+                visitor.scan(Path.of(oldImageReport.imageName), newImageReport -> comparison.add(oldImageReport, newImageReport));
+            }
+            visitor.drain();
+            comparison.print();
+        } catch (IOException e) {
+            LOG.severe(e.getMessage());
+        }
+    }
+
+    /** Tallies prior reports against new ones and reports degradations as they are found. */
+    class Comparison {
+        private final ReportSummary oldData = new ReportSummary("Old");
+        private final ReportSummary newData = new ReportSummary("New");
+        private int degradationCount;
+        private int improvementCount;
+
+        void add(ImageReport oldImageReport, ImageReport newImageReport) {
+            oldData.tallyData(oldImageReport);
+            newData.tallyData(newImageReport);
+            if (degradationFn.test(oldImageReport, newImageReport)) {
+                degradationCount++;
+                List<String> diffs = diffReport(oldImageReport, newImageReport);
+                if (!diffs.isEmpty()) {
+                    System.out.printf("Degradation with: %s (%s)\n", oldImageReport.imageName, String.join(",", diffs));
                 }
             }
+            else if (!oldImageReport.success && newImageReport.success) {
+                improvementCount++;
+            }
+        }
+
+        void print() {
             System.out.println();
             System.out.printf("Recognition degraded by %d disks and improved by %d disks.\n", degradationCount, improvementCount);
             System.out.println();
             showReportData(oldData, newData);
-        } catch (IOException e) {
-            LOG.severe(e.getMessage());
         }
     }
     public boolean degradationBySuccessFlag(ImageReport oldImageReport, ImageReport newImageReport) {
@@ -225,7 +323,12 @@ public class ScanCommand extends ReusableCommandOptions {
         }
     }
 
-    public static class FileVisitor extends SimpleFileVisitor<Path> {
+    /**
+     * Walks the directory tree and scans each disk image found. With more than one thread, images are
+     * scanned on a fixed pool while a bounded queue of pending results is consumed in submission order;
+     * the JSON report and the summary are therefore identical to a single-threaded scan.
+     */
+    public static class FileVisitor extends SimpleFileVisitor<Path> implements AutoCloseable {
         private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
         private static final PathMatcher globMatcher;
         static {
@@ -255,40 +358,133 @@ public class ScanCommand extends ReusableCommandOptions {
         private final boolean strict;
         private final boolean progress;
         private final ReportSummary reportSummary = new ReportSummary("Scan");
+        private final ExecutorService executor;
+        private final int maxPending;
+        private final Deque<PendingScan> pending = new ArrayDeque<>();
+        private final AtomicInteger reused = new AtomicInteger();
+        private Map<String,ImageReport> priorReports = Map.of();
+        private String buildId;
+        private BiConsumer<ImageReport,ImageReport> rescanned = (prior, current) -> {};
 
         public FileVisitor(PrintStream output, boolean progress, boolean strict) {
+            this(output, progress, strict, 1);
+        }
+        public FileVisitor(PrintStream output, boolean progress, boolean strict, int threads) {
             this.output = output;
             this.progress = progress;
             this.strict = strict;
+            this.executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+            this.maxPending = threads * 4;
         }
 
         public int getCounter() {
             return counter;
         }
+        public int getReused() {
+            return reused.get();
+        }
+
+        /**
+         * Supply prior reports (keyed by image name); images unchanged since a report made by the same build
+         * reuse it rather than being rescanned. New reports are stamped with the build id so that the next
+         * incremental scan can reuse them in turn. A prior report and the report that replaces it are handed
+         * to {@code rescanned} (in walk order).
+         */
+        public void setPriorReports(Map<String,ImageReport> priorReports, String buildId,
+                BiConsumer<ImageReport,ImageReport> rescanned) {
+            this.priorReports = priorReports;
+            this.buildId = buildId;
+            this.rescanned = rescanned;
+        }
 
         @Override
         public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
             if (globMatcher.matches(file)) {
-                counter++;
-                if (progress) {
-                    System.out.printf("#%05d: %s\n", counter, file.toString());
-                }
-                ImageReport imageReport = scanFile(file);
+                visitImage(file);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        /** Scan (or reuse the prior report for) a single image, adding it to the report and summary. */
+        public void visitImage(Path file) {
+            counter++;
+            if (progress) {
+                System.out.printf("#%05d: %s\n", counter, file.toString());
+            }
+            ImageReport prior = priorReports.get(file.toString());
+            scan(file, imageReport -> {
                 reportSummary.tallyData(imageReport);
                 output.println(gson.toJson(imageReport));
+                if (prior != null && prior != imageReport) {
+                    rescanned.accept(prior, imageReport);
+                }
+            });
+        }
+
+        /**
+         * Scan the given image and hand the report to the consumer. When scanning concurrently, the
+         * consumer is invoked (on this thread) in the same order the images were submitted.
+         */
+        public void scan(Path file, Consumer<ImageReport> consumer) {
+            if (executor == null) {
+                consumer.accept(scanFile(file));
+                return;
+            }
+            pending.add(new PendingScan(executor.submit(() -> scanFile(file)), consumer));
+            while (pending.size() > maxPending) {
+                completeNext();
+            }
+        }
+
+        /** Wait for all outstanding scans and deliver their reports. */
+        public void drain() {
+            while (!pending.isEmpty()) {
+                completeNext();
+            }
+        }
+
+        private void completeNext() {
+            PendingScan next = pending.remove();
+            try {
+                next.consumer().accept(next.future().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                // scanFile captures everything, so this should not happen
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (executor != null) {
+                executor.shutdownNow();
             }
-            return FileVisitResult.CONTINUE;
         }
 
         public ImageReport scanFile(Path file) {
             try {
-                return new ImageReport(file, strict);
+                ImageReport prior = priorReports.get(file.toString());
+                if (prior != null && prior.isCurrent(file, buildId)) {
+                    reused.incrementAndGet();
+                    return prior;
+                }
+                // Taken before the scan, so an image that changes during the scan does not look current later
+                ImageReport.Stamp stamp = buildId != null ? ImageReport.Stamp.of(file, buildId) : null;
+                ImageReport imageReport = new ImageReport(file, strict);
+                if (stamp != null) {
+                    imageReport.stamp(stamp);
+                }
+                return imageReport;
             } catch (Throwable t) {
                 return new ImageReport(file, t);
             }
         }
     }
 
+    private record PendingScan(Future<ImageReport> future, Consumer<ImageReport> consumer) {}
+
     public static class ReportSummary {
         final String title;
         int reportCount = 0;
@@ -377,6 +573,11 @@ public class ScanCommand extends ReusableCommandOptions {
         int dataRead = 0;
         List<String> errors = new ArrayList<>();
         List<String> warnings = new ArrayList<>();
+        // Identifies the image (and code) that was scanned; used by incremental scans
+        long fileSize = -1;
+        long lastModified = -1;
+        String digest;
+        String build;
 
         /** A failure report. */
         ImageReport(Path file, Throwable t) {
@@ -416,6 +617,45 @@ public class ScanCommand extends ReusableCommandOptions {
             }
         }
 
+        /** The size, timestamp, and content digest of an image file, and the build that scanned it. */
+        record Stamp(long fileSize, long lastModified, String digest, String build) {
+            static Stamp of(Path file, String build) throws IOException {
+                return new Stamp(Files.size(file), Files.getLastModifiedTime(file).toMillis(), ImageReport.digest(file), build);
+            }
+        }
+
+        /** Record how the image looked when it was scanned, and by which build. */
+        void stamp(Stamp stamp) {
+            fileSize = stamp.fileSize();
+            lastModified = stamp.lastModified();
+            digest = stamp.digest();
+            build = stamp.build();
+        }
+
+        /**
+         * Indicates this report still describes the given file as scanned by the given build. The size and
+         * build must match, and either the timestamp matches or (if the file was merely touched) the content
+         * digest does. The report itself is not changed; a touched file is simply digested again next time.
+         */
+        boolean isCurrent(Path file, String build) throws IOException {
+            if (digest == null || build == null || !build.equals(this.build) || fileSize != Files.size(file)) {
+                return false;
+            }
+            return Files.getLastModifiedTime(file).toMillis() == lastModified || digest.equals(digest(file));
+        }
+
+        static String digest(Path file) throws IOException {
+            try {
+                MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+                try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file), messageDigest)) {
+                    inputStream.transferTo(OutputStream.nullOutputStream());
+                }
+                return HexFormat.of().formatHex(messageDigest.digest());
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         void fixup() {
             // Gson doesn't seem to have the ability to create an empty list for a non-existent field, so we do it ourselves!
             if (errors == null) errors = new ArrayList<>();
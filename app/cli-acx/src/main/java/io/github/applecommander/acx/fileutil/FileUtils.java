@@ -113,8 +113,16 @@ public class FileUtils {
 	    source.getAuxiliaryType().ifPresent(target::setAuxiliaryType);
 		source.getCreationDate().ifPresent(target::setCreationDate);
 
-        if (source.getFileData().isPresent() && source.getResourceData().isPresent()) {
-            target.setFileData(source.getFileData().get(), source.getResourceData().get());
+        Optional<byte[]> resourceData = source.getResourceData();
+        Optional<Integer> fileDataLength = source.getFileDataLength();
+        if (resourceData.isPresent()) {
+            Optional<byte[]> fileData = source.getFileData();
+            if (fileData.isPresent()) {
+                target.setFileData(fileData.get(), resourceData.get());
+            }
+        } else if (fileDataLength.isPresent()) {
+            // Stream the data across rather than loading the whole file
+            source.getFileDataStream().ifPresent(stream -> target.setFileData(stream, fileDataLength.get()));
         } else {
             source.getFileData().ifPresent(target::setFileData);
         }
@@ -0,0 +1,127 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package io.github.applecommander.acx.command;
+
+import com.webcodepro.applecommander.storage.DiskConstants;
+import io.github.applecommander.acx.command.ScanCommand.FileVisitor;
+import io.github.applecommander.acx.command.ScanCommand.ImageReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScanCommandTest {
+    @Test
+    public void testImageReportIsCurrent(@TempDir Path tempDir) throws IOException {
+        Path image = tempDir.resolve("image.dsk");
+        byte[] data = new byte[DiskConstants.APPLE_140KB_DISK];
+        Files.write(image, data);
+        ImageReport report = new ImageReport(image, new RuntimeException("not scanned"));
+        report.stamp(ImageReport.Stamp.of(image, "build-1"));
+        long stamped = report.lastModified;
+        assertTrue(report.isCurrent(image, "build-1"));
+
+        // Any other build (or none at all) rescans
+        assertFalse(report.isCurrent(image, "build-2"));
+        assertFalse(report.isCurrent(image, null));
+
+        // Touched but identical is still current, and checking does not change the report
+        Files.setLastModifiedTime(image, FileTime.fromMillis(stamped + 60_000));
+        assertTrue(report.isCurrent(image, "build-1"));
+        assertEquals(stamped, report.lastModified);
+
+        // Same size but different content
+        data[1000] = 1;
+        Files.write(image, data);
+        assertFalse(report.isCurrent(image, "build-1"));
+
+        // Size change
+        Files.write(image, new byte[DiskConstants.APPLE_800KB_DISK]);
+        assertFalse(report.isCurrent(image, "build-1"));
+    }
+
+    @Test
+    public void testChangedScanIdRescans(@TempDir Path tempDir) throws IOException {
+        Path image = tempDir.resolve("image.dsk");
+        Files.copy(Path.of("src/test/resources/disks/MERLIN8PRO1.DSK"), image);
+        ImageReport prior;
+        try (FileVisitor visitor = new FileVisitor(new PrintStream(OutputStream.nullOutputStream()), false, false)) {
+            visitor.setPriorReports(Map.of(), "build-1", (old, current) -> {});
+            prior = visitor.scanFile(image);
+        }
+        Map<String,ImageReport> priorReports = Map.of(image.toString(), prior);
+
+        // The same build reuses the report
+        try (FileVisitor visitor = new FileVisitor(new PrintStream(OutputStream.nullOutputStream()), false, false)) {
+            visitor.setPriorReports(priorReports, "build-1", (old, current) -> {});
+            assertSame(prior, visitor.scanFile(image));
+            assertEquals(1, visitor.getReused());
+        }
+        // Any change to the scanning code gives a new id, and the image is scanned again
+        try (FileVisitor visitor = new FileVisitor(new PrintStream(OutputStream.nullOutputStream()), false, false)) {
+            visitor.setPriorReports(priorReports, "build-2", (old, current) -> {});
+            ImageReport rescanned = visitor.scanFile(image);
+            assertNotSame(prior, rescanned);
+            assertEquals(0, visitor.getReused());
+            assertTrue(rescanned.isCurrent(image, "build-2"));
+        }
+    }
+
+    @Test
+    public void testThreadedScanMatchesSerialScan(@TempDir Path tempDir) throws IOException {
+        // Several copies of each test disk, so that scans finish out of order
+        List<Path> disks;
+        try (Stream<Path> stream = Files.list(Path.of("src/test/resources/disks"))) {
+            disks = stream.sorted().toList();
+        }
+        for (int i = 0; i < 6; i++) {
+            for (Path disk : disks) {
+                Files.copy(disk, tempDir.resolve(i + "-" + disk.getFileName()));
+            }
+        }
+        int images = 6 * disks.size();
+        String serial = scan(tempDir, 1, images);
+        String threaded = scan(tempDir, 4, images);
+        // Same reports, in the same (walk) order
+        assertEquals(serial, threaded);
+        assertEquals(images, serial.split("\"imageName\"", -1).length - 1);
+    }
+
+    private static String scan(Path dir, int threads, int images) throws IOException {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        try (FileVisitor visitor = new FileVisitor(new PrintStream(report), false, false, threads)) {
+            Files.walkFileTree(dir, visitor);
+            visitor.drain();
+            assertEquals(images, visitor.getCounter());
+        }
+        return report.toString();
+    }
+}
@@ -19,6 +19,7 @@
  */
 package com.webcodepro.applecommander.storage;
 
+import com.webcodepro.applecommander.storage.os.shrinkit.ShrinkitArchive;
 import org.applecommander.device.*;
 import org.applecommander.device.nibble.NibbleTrackReaderWriter;
 import org.applecommander.hint.Hint;
@@ -26,8 +27,11 @@ import org.applecommander.image.NibbleImage;
 import org.applecommander.image.WozImage;
 import org.applecommander.source.Source;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -56,21 +60,52 @@ import java.util.Optional;
  *     mappings to track and sector, but logically, they are block devices.</li>
  * <li>Anything else (larger than 800K) are "hard-disk" images and only blocks.</li>
  * </ul>
+ * When the Context is given a {@link DeviceCache.Config}, every device handed out by the builders is
+ * wrapped in a {@link CachingBlockDevice} or {@link CachingTrackSectorDevice}.
+ * <br/>
+ * Factories may be run concurrently (see {@link Disks#inspectParallel(Source)}), so an implementation
+ * should only communicate through the Context it is given.
  */
 public interface DiskFactory {
     void inspect(Context ctx);
 
+    /**
+     * A cheap test (size or signature only) to determine if this factory could possibly find a disk
+     * in the image. When false, {@link #inspect(Context)} is skipped. The default assumes it might.
+     */
+    default boolean isCandidate(Context ctx) {
+        return true;
+    }
+
     class Context {
         public final Source source;
         public final NibbleTrackReaderWriter nibbleTrackReaderWriter;
         public final List<FormattedDisk> disks = new ArrayList<>();
+        /** Optional device caching; null when devices are not cached. */
+        public final DeviceCache.Config cacheConfig;
+        /** Time spent in each DiskFactory (by class name), in the order the factories were run. */
+        public final Map<String,Duration> timings = new LinkedHashMap<>();
+        /** Result of nibble identification; computed once and shared by all builders. */
+        private Optional<TrackSectorDevice> nibbleDevice;
+        /** When inspecting in parallel, each factory gets its own Context that shares this one. */
+        private final Context parent;
+        /** Archives (such as ShrinkIt) are not disk images, so none of the device builders apply. */
+        private final boolean archive;
 
         public Context(Source source) {
+            this(source, null);
+        }
+        public Context(Source source, DeviceCache.Config cacheConfig) {
             this.source = source;
+            this.cacheConfig = cacheConfig;
+            this.parent = null;
+            this.archive = source.get(ShrinkitArchive.class).isPresent();
 
             /* Does it have the WOZ1 or WOZ2 header? */
             int signature = source.readBytes(0, 4).readInt();
-            if (WozImage.WOZ1_MAGIC == signature || WozImage.WOZ2_MAGIC == signature) {
+            if (archive) {
+                nibbleTrackReaderWriter = null;
+            } else if (WozImage.WOZ1_MAGIC == signature || WozImage.WOZ2_MAGIC == signature) {
                 nibbleTrackReaderWriter = new WozImage(source);
             } else if (source.is(Hint.NIBBLE_SECTOR_ORDER) || source.isApproxEQ(DiskConstants.APPLE_140KB_NIBBLE_DISK)) {
                 nibbleTrackReaderWriter = new NibbleImage(source);
@@ -79,6 +114,65 @@ public interface DiskFactory {
             }
         }
 
+        /**
+         * Create a Context sharing the image (and nibble identification) of the given Context, but
+         * collecting its own disks and timings.
+         */
+        Context(Context parent) {
+            this.source = parent.source;
+            this.nibbleTrackReaderWriter = parent.nibbleTrackReaderWriter;
+            this.cacheConfig = parent.cacheConfig;
+            this.parent = parent;
+            this.archive = parent.archive;
+        }
+
+        /** Is this an archive rather than a disk image? If so, the maybe* tests are all false. */
+        public boolean isArchive() {
+            return archive;
+        }
+
+        /** Could this image hold a 13-sector disk? Mirrors {@link TrackSectorDeviceBuilder#include13Sector()}. */
+        public boolean maybe13Sector() {
+            return !archive && (nibbleTrackReaderWriter != null || source.isApproxEQ(DiskConstants.APPLE_13SECTOR_DISK));
+        }
+        /** Could this image hold a 16-sector disk? Mirrors the {@code include16Sector} builder methods. */
+        public boolean maybe16Sector() {
+            return !archive && (nibbleTrackReaderWriter != null
+                    || source.isApproxBetween(DiskConstants.APPLE_140KB_DISK, DiskConstants.APPLE_160KB_DISK));
+        }
+        /** Could this image be an 800K disk? Mirrors {@link BlockDeviceBuilder#include800K()}. */
+        public boolean maybe800K() {
+            return !archive && source.isApproxEQ(DiskConstants.APPLE_800KB_DISK);
+        }
+        /** Could this image be a hard disk? Mirrors {@link BlockDeviceBuilder#includeHDV()}. */
+        public boolean maybeHDV() {
+            return !archive && source.getSize() > DiskConstants.APPLE_140KB_NIBBLE_DISK;
+        }
+
+        /**
+         * Identify the nibble device (13 or 16 sector) for this image. Identification reads and decodes
+         * tracks, so the result is memoized; every builder (and every DiskFactory) shares the same
+         * device and therefore the same decoded track cache.
+         */
+        public synchronized Optional<TrackSectorDevice> nibbleDevice() {
+            if (parent != null) {
+                return parent.nibbleDevice();
+            }
+            if (nibbleDevice == null) {
+                nibbleDevice = nibbleTrackReaderWriter == null
+                        ? Optional.empty()
+                        : TrackSectorNibbleDevice.identify(nibbleTrackReaderWriter);
+            }
+            return nibbleDevice;
+        }
+
+        private BlockDevice cached(BlockDevice device) {
+            return cacheConfig == null ? device : new CachingBlockDevice(device, cacheConfig);
+        }
+        private TrackSectorDevice cached(TrackSectorDevice device) {
+            return cacheConfig == null ? device : new CachingTrackSectorDevice(device, cacheConfig);
+        }
+
         public BlockDeviceBuilder blockDevice() {
             return new BlockDeviceBuilder(this);
         }
@@ -90,7 +184,7 @@ public interface DiskFactory {
             }
             public BlockDeviceBuilder include16Sector(Hint hint) {
                 if (ctx.nibbleTrackReaderWriter != null) {
-                    Optional<TrackSectorDevice> nibble = TrackSectorNibbleDevice.identify(ctx.nibbleTrackReaderWriter);
+                    Optional<TrackSectorDevice> nibble = ctx.nibbleDevice();
                     if (nibble.isPresent()) {
                         TrackSectorDevice converted = switch (hint) {
                             case DOS_SECTOR_ORDER -> SkewedTrackSectorDevice.physicalToDosSkew(nibble.get());
@@ -133,7 +227,8 @@ public interface DiskFactory {
                 return this;
             }
             public List<BlockDevice> get() {
-                return devices;
+                if (ctx.cacheConfig == null) return devices;
+                return devices.stream().map(ctx::cached).toList();
             }
         }
 
@@ -148,7 +243,7 @@ public interface DiskFactory {
             }
             public TrackSectorDeviceBuilder include13Sector() {
                 if (ctx.nibbleTrackReaderWriter != null) {
-                    Optional<TrackSectorDevice> nibble = TrackSectorNibbleDevice.identify(ctx.nibbleTrackReaderWriter);
+                    Optional<TrackSectorDevice> nibble = ctx.nibbleDevice();
                     nibble.ifPresent(device -> {
                         if (device.getGeometry().sectorsPerTrack() == 13) {
                             devices.add(device);
@@ -163,7 +258,7 @@ public interface DiskFactory {
             public TrackSectorDeviceBuilder include16Sector(Hint hint) {
                 assert hint == Hint.DOS_SECTOR_ORDER || hint == Hint.NIBBLE_SECTOR_ORDER;
                 if (ctx.nibbleTrackReaderWriter != null) {
-                    Optional<TrackSectorDevice> nibble = TrackSectorNibbleDevice.identify(ctx.nibbleTrackReaderWriter);
+                    Optional<TrackSectorDevice> nibble = ctx.nibbleDevice();
                     nibble.ifPresent(device -> {
                         if (device.getGeometry().sectorsPerTrack() == 16) {
                             TrackSectorDevice converted = switch (hint) {
@@ -212,7 +307,8 @@ public interface DiskFactory {
                 return this;
             }
             public List<TrackSectorDevice> get() {
-                return devices;
+                if (ctx.cacheConfig == null) return devices;
+                return devices.stream().map(ctx::cached).toList();
             }
         }
     }
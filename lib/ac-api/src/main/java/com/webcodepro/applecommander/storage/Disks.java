@@ -19,8 +19,10 @@
  */
 package com.webcodepro.applecommander.storage;
 
+import org.applecommander.device.DeviceCache;
 import org.applecommander.source.Source;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ServiceLoader;
@@ -48,14 +50,61 @@ public class Disks {
      * all potential FormattedDisk factories.
      */
     public static DiskFactory.Context inspect(Source source) {
-        DiskFactory.Context ctx = new DiskFactory.Context(source);
-        FACTORIES.forEach(factory -> {
-            try {
-                factory.inspect(ctx);
-            } catch (Throwable t) {
-                // ignore it
-            }
-        });
+        return inspect(new DiskFactory.Context(source));
+    }
+
+    /**
+     * Standardized FormattedDisk creation with the devices wrapped in a block/sector cache.
+     * @see DiskFactory.Context
+     */
+    public static DiskFactory.Context inspect(Source source, DeviceCache.Config cacheConfig) {
+        return inspect(new DiskFactory.Context(source, cacheConfig));
+    }
+
+    /**
+     * Standardized FormattedDisk creation, running all factories concurrently. Disks are reported in the
+     * same order as {@link #inspect(Source)}.
+     */
+    public static DiskFactory.Context inspectParallel(Source source) {
+        return inspectParallel(new DiskFactory.Context(source));
+    }
+
+    /**
+     * Concurrent FormattedDisk creation with the devices wrapped in a block/sector cache.
+     * @see #inspectParallel(Source)
+     */
+    public static DiskFactory.Context inspectParallel(Source source, DeviceCache.Config cacheConfig) {
+        return inspectParallel(new DiskFactory.Context(source, cacheConfig));
+    }
+
+    private static DiskFactory.Context inspect(DiskFactory.Context ctx) {
+        FACTORIES.forEach(factory -> inspect(factory, ctx));
+        return ctx;
+    }
+
+    private static DiskFactory.Context inspectParallel(DiskFactory.Context ctx) {
+        // Each factory collects into its own Context; merging in factory order keeps the results stable
+        List<DiskFactory.Context> results = FACTORIES.parallelStream()
+                .map(factory -> inspect(factory, new DiskFactory.Context(ctx)))
+                .toList();
+        for (DiskFactory.Context result : results) {
+            ctx.disks.addAll(result.disks);
+            ctx.timings.putAll(result.timings);
+        }
+        return ctx;
+    }
+
+    private static DiskFactory.Context inspect(DiskFactory factory, DiskFactory.Context ctx) {
+        if (!factory.isCandidate(ctx)) {
+            return ctx;
+        }
+        long start = System.nanoTime();
+        try {
+            factory.inspect(ctx);
+        } catch (Throwable t) {
+            // ignore it
+        }
+        ctx.timings.put(factory.getClass().getSimpleName(), Duration.ofNanos(System.nanoTime() - start));
         return ctx;
     }
 
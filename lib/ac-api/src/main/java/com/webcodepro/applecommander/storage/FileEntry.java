@@ -19,6 +19,9 @@
  */
 package com.webcodepro.applecommander.storage;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -98,6 +101,27 @@ public interface FileEntry {
 	 * file entry.
 	 */
     void setFileData(byte[] data) throws DiskFullException;
+
+	/**
+	 * Get file data as a stream. This is the same data as {@link #getFileData()}, but
+	 * filesystems that support it read the file incrementally instead of holding the
+	 * entire file in memory.
+	 */
+	default InputStream getFileDataStream() {
+		return new ByteArrayInputStream(getFileData());
+	}
+
+	/**
+	 * Set file data from a stream of the given length. Filesystems that support it write
+	 * the file incrementally; the default reads the stream and uses {@link #setFileData(byte[])}.
+	 */
+	default void setFileData(InputStream inputStream, int length) throws DiskFullException, IOException {
+		byte[] data = inputStream.readNBytes(length);
+		if (data.length != length) {
+			throw new IOException(String.format("expected %d bytes but only read %d", length, data.length));
+		}
+		setFileData(data);
+	}
 	
 	/**
 	 * Get the suggested FileFilter.  This appears to be operating system
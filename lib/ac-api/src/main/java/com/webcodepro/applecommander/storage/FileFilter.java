@@ -19,6 +19,8 @@
  */
 package com.webcodepro.applecommander.storage;
 
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * A file filter takes a buffer of bytes and filters or converts the bytes
@@ -34,6 +36,14 @@ public interface FileFilter {
 	 * Process the given FileEntry and return a byte array with filtered data.
 	 */
     byte[] filter(FileEntry fileEntry);
+	/**
+	 * Process the given FileEntry and write the filtered data to the stream.
+	 * Filters that pass the data through unchanged can stream it rather than
+	 * building the whole file in memory.
+	 */
+    default void filter(FileEntry fileEntry, OutputStream outputStream) throws IOException {
+        outputStream.write(filter(fileEntry));
+    }
 	/**
 	 * Give suggested file name.
 	 */
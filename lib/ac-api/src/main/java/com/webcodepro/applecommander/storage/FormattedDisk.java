@@ -24,12 +24,15 @@ import org.applecommander.device.TrackSectorDevice;
 import org.applecommander.source.Source;
 import org.applecommander.util.Container;
 import org.applecommander.util.DataBuffer;
+import org.applecommander.util.WriteBack;
+import org.applecommander.util.WriteBatch;
 
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.IntSupplier;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -133,6 +136,15 @@ public abstract class FormattedDisk implements DirectoryEntry, Container {
 
     private String filename;
     private final Source source;
+    /**
+     * Cached count of free allocation units (blocks or sectors, depending on the filesystem);
+     * -1 indicates it needs to be recomputed.
+     */
+    private int freeCount = -1;
+    /**
+     * The writes of the current batch; null when no batch is open.
+     */
+    private WriteBatch batch;
 
     /**
 	 * Constructor for FormattedDisk.
@@ -176,6 +188,113 @@ public abstract class FormattedDisk implements DirectoryEntry, Container {
 	 */
 	public abstract int getUsedSpace();
 
+	/**
+	 * Answer the cached free count, computing it with the given counter when needed. Filesystems
+	 * that count free space from their bitmap use this (and {@link #invalidateFreeCount()} when
+	 * writing) so that repeated listings do not re-read and re-count the bitmap.
+	 */
+	protected int getCachedFreeCount(IntSupplier counter) {
+		if (freeCount < 0) {
+			freeCount = counter.getAsInt();
+		}
+		return freeCount;
+	}
+
+	/**
+	 * Discard the cached free count; the next request recomputes it.
+	 */
+	protected void invalidateFreeCount() {
+		freeCount = -1;
+	}
+
+	/**
+	 * Indicates if this disk can hold a batch of writes in memory.
+	 * @see #beginBatch()
+	 */
+	public boolean supportsBatch() {
+		return false;
+	}
+
+	/**
+	 * Start a batch.  Until {@link #commit()} or {@link #rollback()}, writes (file data,
+	 * directory blocks, and the allocation map) are held in memory, so a bulk import reads
+	 * and writes the allocation map once instead of once per file.  Entries obtained during
+	 * a batch should not be used after it is rolled back.
+	 */
+	public void beginBatch() {
+		if (!supportsBatch()) {
+			throw new UnsupportedOperationException(textBundle.get("FormattedDisk.BatchNotSupported")); //$NON-NLS-1$
+		}
+		if (batch != null) {
+			throw new IllegalStateException(textBundle.get("FormattedDisk.BatchInProgress")); //$NON-NLS-1$
+		}
+		batch = createBatch();
+	}
+
+	/**
+	 * Indicates if a batch is open.
+	 */
+	public boolean isBatch() {
+		return batch != null;
+	}
+
+	/**
+	 * Write out everything held by the current batch and close it.  If the device fails
+	 * part way, the units written before the failure are on the device and the rest are
+	 * not, so the image may be inconsistent.  The batch stays open with all of its writes:
+	 * commit can be tried again, or {@link #rollback()} discards the held writes (but not
+	 * those that already reached the device).
+	 */
+	public void commit() {
+		if (batch == null) {
+			throw new IllegalStateException(textBundle.get("FormattedDisk.NoBatch")); //$NON-NLS-1$
+		}
+		commitBatch(batch);
+		batch = null;
+	}
+
+	/**
+	 * Discard everything held by the current batch and close it.  The disk is left as it
+	 * was when the batch began.
+	 */
+	public void rollback() {
+		if (batch == null) {
+			throw new IllegalStateException(textBundle.get("FormattedDisk.NoBatch")); //$NON-NLS-1$
+		}
+		batch = null;
+		invalidateFreeCount();
+		rollbackBatch();
+	}
+
+	/**
+	 * The writes of the current batch, or null when no batch is open.  Filesystems that
+	 * support batches read through and write into this.
+	 */
+	protected WriteBatch getBatch() {
+		return batch;
+	}
+
+	/**
+	 * Create the holder for a new batch.  Filesystems that support batches override this.
+	 */
+	protected WriteBatch createBatch() {
+		throw new UnsupportedOperationException(textBundle.get("FormattedDisk.BatchNotSupported")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Write the held units (and any other state held during the batch) to the device.
+	 * The batch is still open while this runs; if it throws, the held units and state
+	 * must be left in place so that the commit can be retried or rolled back.
+	 */
+	protected void commitBatch(WriteBatch pending) {
+	}
+
+	/**
+	 * Drop any in-memory state that was built up during the batch.
+	 */
+	protected void rollbackBatch() {
+	}
+
 	/**
 	 * Get suggested dimensions for display of bitmap.
 	 * Typically, this will be only used for 5.25" floppies.
@@ -279,6 +398,15 @@ public abstract class FormattedDisk implements DirectoryEntry, Container {
 	 * @see FileEntry#getFileData()
 	 */
 	public abstract byte[] getFileData(FileEntry fileEntry);
+
+	/**
+	 * Get the raw data associated with the specified FileEntry as a stream.
+	 * This default reads the whole file with {@link #getFileData(FileEntry)};
+	 * filesystems override it to read a block (or sector) at a time.
+	 */
+	public InputStream getFileDataStream(FileEntry fileEntry) {
+		return new ByteArrayInputStream(getFileData(fileEntry));
+	}
 	
 	/**
 	 * Locate a specific file by filename.
@@ -374,6 +502,14 @@ public abstract class FormattedDisk implements DirectoryEntry, Container {
      * Save a Disk image to its file.
      */
     public void save() throws IOException {
+        if (batch != null) {
+            throw new IllegalStateException(textBundle.get("FormattedDisk.BatchInProgress")); //$NON-NLS-1$
+        }
+        get(WriteBack.class).ifPresent(WriteBack::flush);
+        // Capture the data before the file is truncated; the Source may be a mapping of this very file
+        DataBuffer data = getSource().readAllBytes();
+        byte[] fileData = new byte[data.limit()];
+        data.get(0, fileData);
         File file = new File(getFilename());
         if (!file.exists()) {
             file.createNewFile();
@@ -382,9 +518,6 @@ public abstract class FormattedDisk implements DirectoryEntry, Container {
         if (getFilename().toLowerCase().endsWith(".gz")) {
             output = new GZIPOutputStream(output);
         }
-        DataBuffer data = getSource().readAllBytes();
-        byte[] fileData = new byte[data.limit()];
-        data.get(0, fileData);
         output.write(fileData);
         output.close();
         getSource().clearChanges();
@@ -425,7 +558,9 @@ public abstract class FormattedDisk implements DirectoryEntry, Container {
      * written and cleared when data is saved.
      */
     public boolean hasChanged() {
-        return getSource().hasChanged();
+        return getSource().hasChanged()
+            || (batch != null && !batch.isEmpty())
+            || get(WriteBack.class).map(WriteBack::hasPendingChanges).orElse(false);
     }
 
 	/**
@@ -19,6 +19,9 @@
  */
 package com.webcodepro.applecommander.storage;
 
+import com.webcodepro.applecommander.storage.os.shrinkit.ShrinkitArchive;
+import com.webcodepro.shrinkit.ThreadKind;
+import com.webcodepro.shrinkit.ThreadRecord;
 import org.applecommander.hint.Hint;
 import org.applecommander.source.DataBufferSource;
 import org.applecommander.source.Source;
@@ -32,6 +35,17 @@ import java.util.stream.IntStream;
 import static com.webcodepro.applecommander.util.ShrinkItUtilities.unpackSHKFile;
 import static com.webcodepro.shrinkit.io.ByteConstants.*;
 
+/**
+ * Recognizes NuFX (ShrinkIt) and Binary II archives.
+ * <ul>
+ * <li>An archive holding a disk image (SDK) becomes that disk image; only the disk image thread
+ *     is decompressed.</li>
+ * <li>Any other archive is opened as a {@link ShrinkitArchive}, which only parses the headers and
+ *     is presented as a read-only disk by the
+ *     {@link com.webcodepro.applecommander.storage.os.shrinkit.ShrinkitDiskFactory}.</li>
+ * </ul>
+ * To unpack the files onto a writable ProDOS volume, use {@link #fromSource(Source, int)}.
+ */
 public class ShrinkitSourceFactory implements Source.Factory {
     @Override
     public Optional<Source> fromObject(Object object) {
@@ -40,10 +54,55 @@ public class ShrinkitSourceFactory implements Source.Factory {
 
     @Override
     public Optional<Source> fromSource(Source source) {
-        return fromSource(source, 0);
+        String archiveType = identify(source);
+        if (archiveType != null) {
+            try {
+                ShrinkitArchive archive = new ShrinkitArchive(source, archiveType);
+                Optional<ThreadRecord> diskImage = archive.findThread(ThreadKind.DISK_IMAGE);
+                if (diskImage.isPresent()) {
+                    byte[] imageData = archive.readThread(diskImage.get());
+                    return Optional.of(createSource(source, archiveType, imageData));
+                }
+                return Optional.of(archive);
+            } catch (IOException | RuntimeException ex) {
+                // ignore error
+            }
+        }
+        return Optional.empty();
     }
 
+    /**
+     * Unpack the archive onto a new ProDOS volume (or extract the disk image, if present).
+     * This is the "convert" operation and decompresses every file in the archive.
+     * @param requestedBlockSize size of the new volume in blocks; 0 sizes the volume to fit the files
+     */
     public Optional<Source> fromSource(Source source, int requestedBlockSize) {
+        String archiveType = identify(source);
+        if (archiveType != null) {
+            try {
+                byte[] imageData = unpackSHKFile(source.getName(), source, requestedBlockSize);
+                return Optional.of(createSource(source, archiveType, imageData));
+            } catch (IOException ex) {
+                // ignore error
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Source createSource(Source source, String archiveType, byte[] imageData) {
+        return DataBufferSource.create(imageData, source.getName() + ".po")
+                .hints(Hint.PRODOS_BLOCK_ORDER, Hint.ORIGIN_SHRINKIT)
+                .information(Information.builder("Original name").value(source.getName()),
+                             Information.builder("Original type").value(archiveType))
+                .changed(true)
+                .get();
+    }
+
+    /**
+     * Look for the archive signature near the start of the source.
+     * @return the archive type ("Shrinkit" or "Binary II") or null if this is not an archive
+     */
+    private static String identify(Source source) {
         final int sampleSize = 128;
         final int requiredBytes = IntStream.of(NUFILE_ID.length, NUFX_ID.length, BXY_ID.length).max().getAsInt();
         if (source.getSize() >= sampleSize) {
@@ -56,21 +115,13 @@ public class ShrinkitSourceFactory implements Source.Factory {
                 nufx = magic.matches(i, NUFX_ID);
                 bxy = magic.matches(i, BXY_ID);
             }
-            if (nufile || nufx || bxy) {
-                try {
-                    byte[] imageData = unpackSHKFile(source.getName(), source, requestedBlockSize);
-                    Source shkSource = DataBufferSource.create(imageData, source.getName() + ".po")
-                            .hints(Hint.PRODOS_BLOCK_ORDER, Hint.ORIGIN_SHRINKIT)
-                            .information(Information.builder("Original name").value(source.getName()),
-                                         Information.builder("Original type").value(bxy ? "Binary II" : "Shrinkit"))
-                            .changed(true)
-                            .get();
-                    return Optional.of(shkSource);
-                } catch (IOException ex) {
-                    // ignore error
-                }
+            if (bxy) {
+                return "Binary II";
+            }
+            if (nufile || nufx) {
+                return "Shrinkit";
             }
         }
-        return Optional.empty();
+        return null;
     }
 }
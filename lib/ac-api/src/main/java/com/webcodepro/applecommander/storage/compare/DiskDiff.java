@@ -48,7 +48,10 @@ public class DiskDiff {
     public static Builder create(List<FormattedDisk> diskA, List<FormattedDisk> diskB) {
         return new Builder(diskA, diskB);
     }
-    
+
+    /** Number of blocks compared per bulk read (32K for ProDOS blocks). */
+    private static final int BLOCKS_PER_READ = 64;
+
     private final List<FormattedDisk> diskA;
     private final List<FormattedDisk> diskB;
     private final ComparisonResult results = new ComparisonResult();
@@ -127,11 +130,17 @@ public class DiskDiff {
         }
 
         List<Integer> unequalBlocks = new ArrayList<>();
-        for (int block=0; block<blocksOnDeviceA; block++) {
-            DataBuffer blockA = deviceA.readBlock(block);
-            DataBuffer blockB = deviceB.readBlock(block);
-            if (!blockA.equals(blockB)) {
-                unequalBlocks.add(block);
+        final int blockSize = deviceA.getGeometry().blockSize();
+        for (int start=0; start<blocksOnDeviceA; start+=BLOCKS_PER_READ) {
+            int count = Math.min(BLOCKS_PER_READ, blocksOnDeviceA-start);
+            DataBuffer blocksA = deviceA.readBlocks(start, count);
+            DataBuffer blocksB = deviceB.readBlocks(start, count);
+            for (int i=0; i<count; i++) {
+                DataBuffer blockA = blocksA.slice(i*blockSize, blockSize);
+                DataBuffer blockB = blocksB.slice(i*blockSize, blockSize);
+                if (!blockA.equals(blockB)) {
+                    unequalBlocks.add(start+i);
+                }
             }
         }
         for (Range r : Range.from(unequalBlocks)) {
@@ -167,9 +176,12 @@ public class DiskDiff {
         
         for (int track=0; track<deviceA.getGeometry().tracksOnDisk(); track++) {
             List<Integer> unequalSectors = new ArrayList<>();
+            DataBuffer trackA = deviceA.readTrack(track);
+            DataBuffer trackB = deviceB.readTrack(track);
             for (int sector=0; sector<deviceA.getGeometry().sectorsPerTrack(); sector++) {
-                DataBuffer sectorA = deviceA.readSector(track, sector);
-                DataBuffer sectorB = deviceB.readSector(track, sector);
+                int offset = sector*TrackSectorDevice.SECTOR_SIZE;
+                DataBuffer sectorA = trackA.slice(offset, TrackSectorDevice.SECTOR_SIZE);
+                DataBuffer sectorB = trackB.slice(offset, TrackSectorDevice.SECTOR_SIZE);
                 if (!sectorA.equals(sectorB)) {
                     unequalSectors.add(sector);
                 }
@@ -22,6 +22,10 @@ package com.webcodepro.applecommander.storage.filters;
 import com.webcodepro.applecommander.storage.FileEntry;
 import com.webcodepro.applecommander.storage.FileFilter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * Filter the given file data to be the appropriate length.
  * <p>
@@ -44,6 +48,15 @@ public class BinaryFileFilter implements FileFilter {
 		return fileEntry.getFileData();	// should be nothing to do
 	}
 
+	/**
+	 * Copy the file data to the given stream without buffering the entire file.
+	 */
+	public void filter(FileEntry fileEntry, OutputStream outputStream) throws IOException {
+		try (InputStream inputStream = fileEntry.getFileDataStream()) {
+			inputStream.transferTo(outputStream);
+		}
+	}
+
 	/**
 	 * Give suggested file name.
 	 */
@@ -35,6 +35,11 @@ import java.util.List;
  * @see <a href="https://www.seasip.info/Cpm/format31.html">CP/M 3.1</a>
  */
 public class CpmDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe16Sector();
+    }
+
     @Override
     public void inspect(Context ctx) {
         List<CpmFormatDisk> candidates = new ArrayList<>();
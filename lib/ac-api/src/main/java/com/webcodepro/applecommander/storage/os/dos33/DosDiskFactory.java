@@ -36,6 +36,11 @@ import static com.webcodepro.applecommander.storage.os.dos33.DosFormatDisk.CATAL
 import static com.webcodepro.applecommander.storage.os.dos33.DosFormatDisk.VTOC_SECTOR;
 
 public class DosDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe13Sector() || ctx.maybe16Sector() || ctx.maybe800K();
+    }
+
     @Override
     public void inspect(Context ctx) {
         // It seems easiest to gather all possibilities first...
@@ -23,9 +23,15 @@ import com.webcodepro.applecommander.storage.*;
 import com.webcodepro.applecommander.storage.filters.*;
 import com.webcodepro.applecommander.util.AppleUtil;
 import com.webcodepro.applecommander.util.TextBundle;
+import org.applecommander.util.BlockInputStream;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -61,6 +67,12 @@ public class DosFileEntry implements FileEntry {
 	 * the contents of the data file).
 	 */
 	private Integer address;
+	/**
+	 * This entry's 35 bytes, copied out of its catalog sector when the catalog was walked.
+	 * Any sector write on the disk (not just one to this catalog sector) retires the copy.
+	 */
+	private byte[] snapshot;
+	private int snapshotGeneration;
 
 	/**
 	 * Constructor for DosFileEntry.
@@ -81,10 +93,19 @@ public class DosFileEntry implements FileEntry {
 	 * Read the FileEntry from the disk image.
 	 */
 	protected byte[] readFileEntry() {
-		byte[] sectorData = disk.readSector(track, sector);
-		byte[] fileEntry = new byte[FILE_DESCRIPTIVE_ENTRY_LENGTH];
-		System.arraycopy(sectorData, offset, fileEntry, 0, fileEntry.length);
-		return fileEntry;
+		if (snapshot == null || snapshotGeneration != disk.getWriteGeneration()) {
+			snapshot(disk.readSector(track, sector));
+		}
+		return snapshot.clone();
+	}
+
+	/**
+	 * Capture the entry bytes from an already read copy of the catalog sector.
+	 */
+	void snapshot(byte[] sectorData) {
+		snapshot = new byte[FILE_DESCRIPTIVE_ENTRY_LENGTH];
+		System.arraycopy(sectorData, offset, snapshot, 0, snapshot.length);
+		snapshotGeneration = disk.getWriteGeneration();
 	}
 	
 	/**
@@ -99,6 +120,7 @@ public class DosFileEntry implements FileEntry {
 		byte[] sectorData = disk.readSector(track, sector);
 		System.arraycopy(fileEntry, 0, sectorData, offset, fileEntry.length);
 		disk.writeSector(track, sector, sectorData);
+		snapshot(sectorData);
 	}
 
 	/**
@@ -193,7 +215,7 @@ public class DosFileEntry implements FileEntry {
 	public int getSize() {
 		byte[] rawdata = null;
 		if (!isDeleted()) {
-			rawdata = disk.getFileData(this);
+			rawdata = readHeader(4);
 		}
 		// default to nothing special, just compute from number of sectors
 		int size = (getSectorsUsed()-1) * DiskConstants.SECTOR_SIZE;
@@ -209,6 +231,14 @@ public class DosFileEntry implements FileEntry {
 		}
 		return size;
 	}
+
+	/**
+	 * Read the leading bytes of the raw file data; only the first data sector is read.
+	 */
+	private byte[] readHeader(int length) {
+		byte[] sectorData = disk.readFirstDataSector(this);
+		return Arrays.copyOf(sectorData, Math.min(length, sectorData.length));
+	}
 	
 	/**
 	 * Compute the number of sectors used.
@@ -347,6 +377,41 @@ public class DosFileEntry implements FileEntry {
 		return filedata;
 	}
 	
+	/**
+	 * Get file data as a stream.  As with {@link #getFileData()}, the address and
+	 * length header of binary files and the length header of BASIC files are
+	 * stripped off.
+	 */
+	public InputStream getFileDataStream() {
+		if (isDeleted()) {
+			return InputStream.nullInputStream();
+		}
+		InputStream rawStream = disk.getFileDataStream(this);
+		try {
+			if (isBinaryFile() || isApplesoftBasicFile() || isIntegerBasicFile()) {
+				byte[] header = rawStream.readNBytes(isBinaryFile() ? 4 : 2);
+				if (header.length >= 2 && (header.length == 4 || !isBinaryFile())) {
+					int length = AppleUtil.getWordValue(header, header.length - 2);
+					return new BlockInputStream(length, () -> readSector(rawStream));
+				}
+				// Too short to carry a header; hand back what there is
+				return new ByteArrayInputStream(header);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return rawStream;
+	}
+
+	private static byte[] readSector(InputStream inputStream) {
+		try {
+			byte[] data = inputStream.readNBytes(DiskConstants.SECTOR_SIZE);
+			return data.length == 0 ? null : data;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
 	 * Set the file data.  This is essentially the save operation.
 	 * Specifically, if the filetype is binary, the length and
@@ -27,9 +27,15 @@ import org.applecommander.device.BlockToTrackSectorAdapter;
 import org.applecommander.device.TrackSectorDevice;
 import org.applecommander.device.TrackSectorToBlockStrategy;
 import org.applecommander.source.Source;
+import org.applecommander.util.BlockInputStream;
 import org.applecommander.util.Container;
 import org.applecommander.util.DataBuffer;
+import org.applecommander.util.ExtentReader;
+import org.applecommander.util.WriteBatch;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import static com.webcodepro.applecommander.storage.DiskConstants.SECTOR_SIZE;
@@ -65,6 +71,10 @@ public class DosFormatDisk extends FormattedDisk {
 	 * The standard track/sector pairs in a track/sector list.
 	 */
 	public static final int TRACK_SECTOR_PAIRS = 122;
+	/**
+	 * The most data sectors read from the device in one request (a full track).
+	 */
+	private static final int MAXIMUM_EXTENT_SECTORS = 16;
 	/**
 	 * The list of filetypes available.
 	 */
@@ -122,6 +132,11 @@ public class DosFormatDisk extends FormattedDisk {
 
     private final TrackSectorDevice device;
     private final int catalogTrack;
+    /**
+     * Incremented on every sector write; catalog entries use this to know when their
+     * snapshot of the entry bytes may be stale.
+     */
+    private int writeGeneration;
 
 	/**
 	 * Constructor for DosFormatDisk.
@@ -206,7 +221,9 @@ public class DosFormatDisk extends FormattedDisk {
 					break;
 				}
 				else {
-					list.add(new DosFileEntry(this, track, sector, offset));
+					DosFileEntry fileEntry = new DosFileEntry(this, track, sector, offset);
+					fileEntry.snapshot(catalogSector);
+					list.add(fileEntry);
 				}
 				offset+= DosFileEntry.FILE_DESCRIPTIVE_ENTRY_LENGTH;
 			}
@@ -266,8 +283,7 @@ public class DosFormatDisk extends FormattedDisk {
 
 	/**
 	 * Compute the amount of freespace available on the disk.
-	 * This algorithm completely ignores tracks and sectors by
-	 * running through the entire bitmap stored on the VTOC.
+	 * This is the free sector count from the bitmap stored on the VTOC.
 	 * @see com.webcodepro.applecommander.storage.FormattedDisk#getFreeSpace()
 	 */
 	public int getFreeSpace() {
@@ -275,16 +291,21 @@ public class DosFormatDisk extends FormattedDisk {
 	}
 	
 	/**
-	 * Compute the number of free sectors available on the disk.
+	 * Compute the number of free sectors available on the disk.  Like the sector
+	 * allocator, this only counts tracks 1 and up, and never the catalog track; free
+	 * bits there cannot be allocated to a file.
 	 */
 	public int getFreeSectors() {
-		byte[] vtoc = readVtoc();
-		int freeSectors = 0;
-		for (int offset=0x38; offset<0xff; offset++) {
-			byte bitmap = vtoc[offset];
-			freeSectors+= AppleUtil.getBitCount(bitmap);
-		}
-		return freeSectors;
+		return getCachedFreeCount(() -> {
+			byte[] vtoc = readVtoc();
+			// each track has 4 bytes of bitmap
+			int tracks = Math.min(getTracks(), (0x100 - 0x38) / 4);
+			int count = AppleUtil.getBitCount(vtoc, 0x38 + 4, (tracks - 1) * 4);
+			if (catalogTrack >= 1 && catalogTrack < tracks) {
+				count -= AppleUtil.getBitCount(vtoc, 0x38 + catalogTrack * 4, 4);
+			}
+			return count;
+		});
 	}
 
 	/**
@@ -484,44 +505,128 @@ public class DosFormatDisk extends FormattedDisk {
 	 * Get the data associated with the specified FileEntry.
 	 */
 	public byte[] getFileData(FileEntry fileEntry) {
-		if ( !(fileEntry instanceof DosFileEntry)) {
-			throw new IllegalArgumentException(textBundle.get("DosFormatDisk.InvalidFileEntryError")); //$NON-NLS-1$
+		DosFileEntry dosEntry = toDosFileEntry(fileEntry);
+		try (InputStream inputStream = getFileDataStream(dosEntry)) {
+			return inputStream.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
-		DosFileEntry dosEntry = (DosFileEntry) fileEntry;
+	}
+
+	/**
+	 * Get the raw data of the specified FileEntry as a stream.  The T/S lists and data
+	 * sectors are read as the stream reaches them.
+	 */
+	@Override
+	public InputStream getFileDataStream(FileEntry fileEntry) {
+		DosFileEntry dosEntry = toDosFileEntry(fileEntry);
 		if (dosEntry.isDeleted()) {
 			// track for T/S is whacked; we don't know if the old byte is valid or not, so not trying
-			return new byte[0];
+			return InputStream.nullInputStream();
 		}
 		// Size is calculated by sectors used - not actual size - as size varies
 		// on filetype, etc.
-		int sectorsRemaining = dosEntry.getSectorsUsed();
-		byte[] fileData = null;
-		if (sectorsRemaining > 0) {
-			fileData = new byte[(dosEntry.getSectorsUsed()-1) * SECTOR_SIZE];
-		} else {
-			fileData = new byte[0];
+		int sectorsUsed = dosEntry.getSectorsUsed();
+		if (sectorsUsed <= 0) {
 			// don't need to load it - also bypass potential issues
-			return fileData;
+			return InputStream.nullInputStream();
 		}
-		int track = dosEntry.getTrack();
-		int sector = dosEntry.getSector();
-		int offset = 0;
-		while (track != 0 && sectorsRemaining > 0) {
-			byte[] trackSectorList = readSector(track, sector);
-			sectorsRemaining--;
-			track = AppleUtil.getUnsignedByte(trackSectorList[0x01]);
-			sector = AppleUtil.getUnsignedByte(trackSectorList[0x02]);
-			for (int i=0x0c; i<0x100 && sectorsRemaining > 0; i+=2) {
-				int t = AppleUtil.getUnsignedByte(trackSectorList[i]);
-				if (t == 0) break;
-				int s = AppleUtil.getUnsignedByte(trackSectorList[i+1]);
-				byte[] sectorData = readSector(t,s);
-				System.arraycopy(sectorData, 0, fileData, offset, sectorData.length);
-				offset+= sectorData.length;
-				sectorsRemaining--;		// only count the number of sectors DOS says it's using?
+		int sectorsPerTrack = device.getGeometry().sectorsPerTrack();
+		ExtentReader extents = new ExtentReader(new DataSectorIterator(dosEntry, sectorsPerTrack), SECTOR_SIZE,
+				sectorsPerTrack, MAXIMUM_EXTENT_SECTORS, (start, count) ->
+					readSectors(start / sectorsPerTrack, start % sectorsPerTrack, count));
+		return new BlockInputStream((long) (sectorsUsed-1) * SECTOR_SIZE, extents);
+	}
+
+	/**
+	 * Read the first data sector of the specified DosFileEntry with a single sector read, or
+	 * answer an empty array if the file has no data.  Listings use this for the length and
+	 * address header without reading the extent a stream would.
+	 */
+	byte[] readFirstDataSector(DosFileEntry dosEntry) {
+		if (dosEntry.isDeleted() || dosEntry.getSectorsUsed() <= 0) {
+			return new byte[0];
+		}
+		int sectorsPerTrack = device.getGeometry().sectorsPerTrack();
+		DataSectorIterator dataSectors = new DataSectorIterator(dosEntry, sectorsPerTrack);
+		if (!dataSectors.hasNext()) {
+			return new byte[0];
+		}
+		int linearSector = dataSectors.nextInt();
+		return readSector(linearSector / sectorsPerTrack, linearSector % sectorsPerTrack);
+	}
+
+	private DosFileEntry toDosFileEntry(FileEntry fileEntry) {
+		if ( !(fileEntry instanceof DosFileEntry)) {
+			throw new IllegalArgumentException(textBundle.get("DosFormatDisk.InvalidFileEntryError")); //$NON-NLS-1$
+		}
+		return (DosFileEntry) fileEntry;
+	}
+
+	/**
+	 * Walks the data sectors of a file through its T/S lists, answering each sector as a
+	 * linear sector number (track * sectors per track + sector).  Each T/S list sector is
+	 * read when the walk reaches it; a zero track ends the current T/S list.
+	 */
+	private class DataSectorIterator implements PrimitiveIterator.OfInt {
+		private final int sectorsPerTrack;
+		private int track;
+		private int sector;
+		private int sectorsRemaining;
+		private byte[] trackSectorList;
+		private int position;
+		private int nextSector = -1;
+
+		private DataSectorIterator(DosFileEntry dosEntry, int sectorsPerTrack) {
+			this.sectorsPerTrack = sectorsPerTrack;
+			this.track = dosEntry.getTrack();
+			this.sector = dosEntry.getSector();
+			this.sectorsRemaining = dosEntry.getSectorsUsed();
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextSector < 0) {
+				nextSector = advance();
+			}
+			return nextSector >= 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int linearSector = nextSector;
+			nextSector = -1;
+			return linearSector;
+		}
+
+		private int advance() {
+			while (sectorsRemaining > 0) {
+				if (trackSectorList == null) {
+					if (track == 0) {
+						return -1;
+					}
+					trackSectorList = readSector(track, sector);
+					sectorsRemaining--;
+					track = AppleUtil.getUnsignedByte(trackSectorList[0x01]);
+					sector = AppleUtil.getUnsignedByte(trackSectorList[0x02]);
+					position = 0x0c;
+				}
+				if (position < 0x100) {
+					int t = AppleUtil.getUnsignedByte(trackSectorList[position]);
+					if (t != 0) {
+						int s = AppleUtil.getUnsignedByte(trackSectorList[position+1]);
+						position += 2;
+						sectorsRemaining--;		// only count the number of sectors DOS says it's using?
+						return t * sectorsPerTrack + s;
+					}
+				}
+				trackSectorList = null;
 			}
+			return -1;
 		}
-		return fileData;
 	}
 
 	/**
@@ -542,53 +647,38 @@ public class DosFormatDisk extends FormattedDisk {
 		int numberOfDataSectors = (data.length + SECTOR_SIZE - 1) / SECTOR_SIZE;
 		int numberOfSectors = numberOfDataSectors + 
 			(numberOfDataSectors + TRACK_SECTOR_PAIRS - 1) / TRACK_SECTOR_PAIRS;
-		if (numberOfSectors > getFreeSectors() + fileEntry.getSectorsUsed()) {
+		// release the "old" data in a working copy of the VTOC; nothing is written until it all fits
+		byte[] vtoc = readVtoc();
+		freeSectors(fileEntry, vtoc);
+		int track = fileEntry.getTrack();
+		int sector = fileEntry.getSector();
+		boolean reuseTrackSectorList = track != 0 && track != 255;
+		if (reuseTrackSectorList) {
+			setSectorUsed(track, sector, vtoc);
+		}
+		DosSectorAllocator allocator = new DosSectorAllocator(this, vtoc, getTracks(), getSectors(), catalogTrack);
+		int available = allocator.available() + (reuseTrackSectorList ? 1 : 0);
+		if (numberOfSectors > available) {
 			throw new DiskFullException(
 					textBundle.format("DosFormatDisk.NotEnoughSectorsError", //$NON-NLS-1$
-					numberOfSectors, getFreeSectors())
+					numberOfSectors, available)
 					, this.getFilename());
 		}
-		// free "old" data and just rewrite stuff...
-		freeSectors(fileEntry);
-		byte[] vtoc = readVtoc();
-		int track = fileEntry.getTrack();
-		int sector = fileEntry.getSector();
-		if (track == 0 || track == 255) {
-			track = 1;
-			sector = 0;
-			while (true) {
-				if (isSectorFree(track,sector,vtoc)) {
-					break;
-				}
-				sector++;
-				if (sector >= getSectors()) {
-					track++;
-					sector = 0;
-				}
-			}
+		if (!reuseTrackSectorList) {
+			int[] ts = allocator.allocate();
+			track = ts[0];
+			sector = ts[1];
 			fileEntry.setTrack(track);
 			fileEntry.setSector(sector);
 		}
-		setSectorUsed(track, sector, vtoc);
 		byte[] trackSectorList = new byte[SECTOR_SIZE];
 		int offset = 0;
 		int trackSectorOffset = 0x0c;
 		int totalSectors = 0;
-		int t=1;	// initial search for space
-		int s=0;
 		while (offset < data.length) {
-			// locate next free sector
-			while (true) {
-				if (isSectorFree(t,s,vtoc)) {
-					break;
-				}
-				s++;
-				if (s >= getSectors()) {
-					t++;
-					s = 0;
-				}
-			}
-			setSectorUsed(t,s,vtoc);
+			int[] ts = allocator.allocate();
+			int t = ts[0];
+			int s = ts[1];
 			if (trackSectorOffset >= 0x100) {
 				// filled up the first track/sector list - save it
 				trackSectorList[0x01] = (byte) t;
@@ -622,6 +712,14 @@ public class DosFormatDisk extends FormattedDisk {
 	 */
 	protected void freeSectors(DosFileEntry dosFileEntry) {
 		byte[] vtoc = readVtoc();
+		freeSectors(dosFileEntry, vtoc);
+		writeVtoc(vtoc);
+	}
+
+	/**
+	 * Mark the sectors used by a DosFileEntry as free in the given VTOC.
+	 */
+	private void freeSectors(DosFileEntry dosFileEntry, byte[] vtoc) {
 		int track = dosFileEntry.getTrack();
 		if (track == 255) return;
 		int sector = dosFileEntry.getSector();
@@ -637,7 +735,6 @@ public class DosFormatDisk extends FormattedDisk {
 				setSectorFree(t,s,vtoc);
 			}
 		}
-		writeVtoc(vtoc);
 	}
 
 	/**
@@ -645,6 +742,7 @@ public class DosFormatDisk extends FormattedDisk {
 	 * @see com.webcodepro.applecommander.storage.FormattedDisk#format()
 	 */
 	public void format() {
+		writeGeneration++;
 		device.format();
 		writeSector(0, 0, getBootCode());
 		// create catalog sectors
@@ -828,11 +926,109 @@ public class DosFormatDisk extends FormattedDisk {
         return DiskGeometry.TRACK_SECTOR;
     }
 
+    int getWriteGeneration() {
+        return writeGeneration;
+    }
     byte[] readSector(int track, int sector) {
+        WriteBatch batch = getBatch();
+        if (batch != null) {
+            byte[] data = batch.read(track * device.getGeometry().sectorsPerTrack() + sector);
+            if (data != null) return data;
+        }
         return device.readSector(track, sector).asBytes();
     }
     void writeSector(int track, int sector, byte[] data) {
-        device.writeSector(track, sector, DataBuffer.wrap(data));
+        writeGeneration++;
+        invalidateFreeCount();
+        WriteBatch batch = getBatch();
+        if (batch != null) {
+            batch.write(track * device.getGeometry().sectorsPerTrack() + sector, data);
+        } else {
+            device.writeSector(track, sector, DataBuffer.wrap(data));
+        }
+    }
+    /**
+     * Read a run of consecutive sectors on one track.  Outside a batch this is a single
+     * device request.
+     */
+    private byte[] readSectors(int track, int sector, int count) {
+        if (getBatch() == null) {
+            return device.readSectors(track, sector, count).asBytes();
+        }
+        byte[] data = new byte[count * SECTOR_SIZE];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(readSector(track, sector + i), 0, data, i * SECTOR_SIZE, SECTOR_SIZE);
+        }
+        return data;
+    }
+
+    /**
+     * DOS holds batched writes in memory; the VTOC is just another sector in the batch.
+     */
+    @Override
+    public boolean supportsBatch() {
+        return true;
+    }
+    @Override
+    protected WriteBatch createBatch() {
+        return new WriteBatch(SECTOR_SIZE);
+    }
+    /**
+     * Commit track by track. Nibble devices re-encode a whole track for every sector write, so
+     * a track with several pending sectors is written once with {@code writeTrack}. If a track
+     * fails to write, every sector goes back into the batch.
+     */
+    @Override
+    protected void commitBatch(WriteBatch pending) {
+        int sectorsPerTrack = device.getGeometry().sectorsPerTrack();
+        Map<Integer,DataBuffer[]> tracks = new TreeMap<>();
+        pending.flush((first, data, count) -> {
+            for (int i = 0; i < count; i++) {
+                int linearSector = first + i;
+                tracks.computeIfAbsent(linearSector / sectorsPerTrack, t -> new DataBuffer[sectorsPerTrack])
+                    [linearSector % sectorsPerTrack] = DataBuffer.wrap(data).slice(i * SECTOR_SIZE, SECTOR_SIZE);
+            }
+        });
+        try {
+            tracks.forEach(this::commitTrack);
+        } catch (RuntimeException e) {
+            tracks.forEach((track, sectors) -> {
+                for (int sector = 0; sector < sectors.length; sector++) {
+                    if (sectors[sector] != null) {
+                        pending.write(track * sectorsPerTrack + sector, sectors[sector].asBytes());
+                    }
+                }
+            });
+            throw e;
+        }
+    }
+    private void commitTrack(int track, DataBuffer[] sectors) {
+        int count = (int) Arrays.stream(sectors).filter(Objects::nonNull).count();
+        DataBuffer trackData = null;
+        if (count == sectors.length) {
+            trackData = DataBuffer.create(sectors.length * SECTOR_SIZE);
+        }
+        else if (count > 1) {
+            try {
+                trackData = DataBuffer.wrap(device.readTrack(track).asBytes());
+            } catch (RuntimeException e) {
+                // an unreadable sector elsewhere on the track; stick to the sectors we have
+            }
+        }
+        if (trackData == null) {
+            for (int sector = 0; sector < sectors.length; sector++) {
+                if (sectors[sector] != null) device.writeSector(track, sector, sectors[sector]);
+            }
+            return;
+        }
+        for (int sector = 0; sector < sectors.length; sector++) {
+            if (sectors[sector] != null) trackData.put(sector * SECTOR_SIZE, sectors[sector]);
+        }
+        device.writeTrack(track, trackData);
+    }
+    @Override
+    protected void rollbackBatch() {
+        writeGeneration++;
     }
 
 	/**
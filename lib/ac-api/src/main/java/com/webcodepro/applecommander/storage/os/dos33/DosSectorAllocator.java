@@ -0,0 +1,111 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage.os.dos33;
+
+import com.webcodepro.applecommander.storage.DiskFullException;
+import com.webcodepro.applecommander.storage.StorageBundle;
+import com.webcodepro.applecommander.util.TextBundle;
+
+/**
+ * Hands out free DOS 3.3 sectors the way DOS does: starting at the VTOC "last track
+ * allocated" ($30) and moving in the VTOC direction ($31), reversing at track 0 and
+ * at the end of the disk. Sectors within a track are taken from the highest down.
+ * Like DOS, track 0 and the catalog track are never handed out.
+ * <p>
+ * The VTOC bitmap is read once into per-track masks, so each allocation is a bit
+ * operation on the current track. All changes are applied to the given VTOC buffer;
+ * the caller writes it back once.
+ */
+class DosSectorAllocator {
+    private final TextBundle textBundle = StorageBundle.getInstance();
+    private final DosFormatDisk disk;
+    private final byte[] vtoc;
+    private final int tracks;
+    private final int catalogTrack;
+    private final int[] freeMasks;
+    private int available;
+    private int track;
+    private int direction;
+
+    DosSectorAllocator(DosFormatDisk disk, byte[] vtoc, int tracks, int sectors, int catalogTrack) {
+        this.disk = disk;
+        this.vtoc = vtoc;
+        this.tracks = tracks;
+        this.catalogTrack = catalogTrack;
+        this.freeMasks = new int[tracks];
+        for (int t = 1; t < tracks; t++) {
+            if (t == catalogTrack) continue;
+            for (int s = 0; s < sectors; s++) {
+                if (disk.isSectorFree(t, s, vtoc)) {
+                    freeMasks[t] |= 1 << s;
+                }
+            }
+            available += Integer.bitCount(freeMasks[t]);
+        }
+        this.track = Byte.toUnsignedInt(vtoc[0x30]);
+        this.direction = vtoc[0x31] < 0 ? -1 : 1;
+        if (track < 1 || track >= tracks) {
+            restart(1);
+        }
+    }
+
+    /** Number of sectors that can still be allocated. */
+    int available() {
+        return available;
+    }
+
+    /**
+     * Allocate the next free sector, marking it used in the VTOC.
+     * @return the allocated sector as { track, sector }
+     */
+    int[] allocate() throws DiskFullException {
+        // A sweep out and back visits every track, so the step count bounds the search
+        int steps = 0;
+        while (freeMasks[track] == 0) {
+            if (available == 0 || steps++ > 2 * tracks) {
+                throw new DiskFullException(textBundle.get("DosFormatDisk.NoFreeSectorsError"), //$NON-NLS-1$
+                        disk.getFilename());
+            }
+            int next = track + direction;
+            if (next < 1) {
+                restart(1);
+            }
+            else if (next >= tracks) {
+                restart(-1);
+            }
+            else {
+                track = next;
+            }
+        }
+        int sector = 31 - Integer.numberOfLeadingZeros(freeMasks[track]);
+        freeMasks[track] &= ~(1 << sector);
+        available--;
+        disk.setSectorUsed(track, sector, vtoc);
+        vtoc[0x30] = (byte) track;
+        vtoc[0x31] = (byte) direction;
+        return new int[] { track, sector };
+    }
+
+    /** Start a sweep next to the catalog track, heading away from it. */
+    private void restart(int direction) {
+        this.direction = direction;
+        this.track = Math.clamp(catalogTrack + direction, 1, tracks - 1);
+    }
+}
@@ -29,6 +29,11 @@ import static com.webcodepro.applecommander.storage.os.gutenberg.GutenbergFormat
 import static com.webcodepro.applecommander.storage.os.gutenberg.GutenbergFormatDisk.VTOC_SECTOR;
 
 public class GutenbergDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe16Sector();
+    }
+
     @Override
     public void inspect(Context ctx) {
         ctx.trackSectorDevice()
@@ -25,6 +25,11 @@ import org.applecommander.hint.Hint;
 import org.applecommander.util.DataBuffer;
 
 public class NakedosDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe16Sector();
+    }
+
     @Override
     public void inspect(Context ctx) {
         ctx.trackSectorDevice()
@@ -29,6 +29,11 @@ import org.applecommander.util.DataBuffer;
  * Automatic discovery of Pascal volumes.
  */
 public class PascalDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe16Sector() || ctx.maybe800K();
+    }
+
     @Override
     public void inspect(Context ctx) {
         ctx.blockDevice()
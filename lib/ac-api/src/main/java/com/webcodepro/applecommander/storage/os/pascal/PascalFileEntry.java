@@ -29,6 +29,7 @@ import org.applecommander.os.pascal.CodeFile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
@@ -330,6 +331,13 @@ public class PascalFileEntry implements FileEntry {
 		return disk.getFileData(this);
 	}
 
+	/**
+	 * Get file data as a stream.  Currently, the disk itself handles this.
+	 */
+	public InputStream getFileDataStream() {
+		return disk.getFileDataStream(this);
+	}
+
 	/**
 	 * Filter text: change CR/LF to CR; compress leading SP.
 	 * author John B. Matthews
@@ -26,9 +26,11 @@ import com.webcodepro.applecommander.util.AppleUtil;
 import com.webcodepro.applecommander.util.TextBundle;
 import org.applecommander.device.BlockDevice;
 import org.applecommander.source.Source;
+import org.applecommander.util.BlockInputStream;
 import org.applecommander.util.Container;
 import org.applecommander.util.DataBuffer;
 
+import java.io.InputStream;
 import java.util.*;
 
 import static com.webcodepro.applecommander.storage.DiskConstants.BLOCK_SIZE;
@@ -568,6 +570,22 @@ public class PascalFormatDisk extends FormattedDisk {
 		return fileData;
 	}
 	
+	/**
+	 * Get the data of the specified FileEntry as a stream.  Pascal files are contiguous,
+	 * so the blocks are simply read in order as the stream reaches them.
+	 */
+	@Override
+	public InputStream getFileDataStream(FileEntry fileEntry) {
+		if ( !(fileEntry instanceof PascalFileEntry)) {
+			throw new IllegalArgumentException(textBundle.get("PascalFormatDisk.IncorrectFileEntryError")); //$NON-NLS-1$
+		}
+		PascalFileEntry pascalEntry = (PascalFileEntry) fileEntry;
+		int lastBlock = pascalEntry.getLastBlock();
+		int[] block = { pascalEntry.getFirstBlock() };
+		return new BlockInputStream(pascalEntry.getSize(),
+				() -> block[0] < lastBlock ? readBlock(block[0]++) : null);
+	}
+
 	/**
 	 * Format the disk as an Apple Pascal disk.
 	 * @see com.webcodepro.applecommander.storage.FormattedDisk#format()
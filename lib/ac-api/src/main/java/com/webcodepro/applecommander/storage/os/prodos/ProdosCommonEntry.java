@@ -47,6 +47,12 @@ public class ProdosCommonEntry {
 	 * The offset into the block that the FileEntry is at.
 	 */
 	private final int offset;
+	/**
+	 * Snapshot of the entry bytes, valid as long as the disk's write generation matches.
+	 * This keeps the many attribute getters from re-reading the directory block each time.
+	 */
+	private byte[] snapshot;
+	private int snapshotGeneration;
 	
 	/**
 	 * Constructor for ProdosCommonEntry.
@@ -73,13 +79,23 @@ public class ProdosCommonEntry {
 	}
 	
 	/**
-	 * Read the fileEntry bytes from the disk image.
+	 * Read the fileEntry bytes from the disk image. Callers get their own copy
+	 * and are free to modify it.
 	 */
 	protected byte[] readFileEntry() {
-		byte[] data = disk.readBlock(block);
-		byte[] entry = new byte[ENTRY_LENGTH];
-		System.arraycopy(data, offset, entry, 0, ENTRY_LENGTH);
-		return entry;
+		if (snapshot == null || snapshotGeneration != disk.getWriteGeneration()) {
+			snapshot(disk.readBlock(block));
+		}
+		return snapshot.clone();
+	}
+
+	/**
+	 * Capture the entry bytes from an already read copy of this entry's block.
+	 */
+	void snapshot(byte[] blockData) {
+		snapshot = new byte[ENTRY_LENGTH];
+		System.arraycopy(blockData, offset, snapshot, 0, ENTRY_LENGTH);
+		snapshotGeneration = disk.getWriteGeneration();
 	}
 
 	/**
@@ -100,6 +116,7 @@ public class ProdosCommonEntry {
 		byte[] data = disk.readBlock(block);
 		System.arraycopy(entry, 0, data, offset, ENTRY_LENGTH);
 		disk.writeBlock(block, data);
+		snapshot(data);
 	}
 
 	/**
@@ -27,6 +27,11 @@ import org.applecommander.util.DataBuffer;
 import static com.webcodepro.applecommander.storage.DiskConstants.BLOCK_SIZE;
 
 public class ProdosDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe16Sector() || ctx.maybe800K() || ctx.maybeHDV();
+    }
+
     @Override
     public void inspect(Context ctx) {
         ctx.blockDevice()
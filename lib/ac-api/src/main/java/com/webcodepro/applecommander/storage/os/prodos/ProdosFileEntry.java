@@ -25,9 +25,12 @@ import com.webcodepro.applecommander.util.AppleUtil;
 import com.webcodepro.applecommander.util.TextBundle;
 import org.applecommander.os.pascal.CodeFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.List;
 
@@ -489,6 +492,21 @@ public class ProdosFileEntry extends ProdosCommonEntry implements FileEntry {
 		return getDisk().getFileData(this);
 	}
 
+	/**
+	 * Get file data as a stream; the file is read a block at a time.
+	 */
+	@Override
+	public InputStream getFileDataStream() {
+		return getDisk().getFileDataStream(this);
+	}
+
+	/**
+	 * Get the hole map of a sparse file; bit n is set when data block n is not allocated.
+	 */
+	public BitSet getHoleMap() {
+		return getDisk().getHoleMap(this);
+	}
+
 	/**
 	 * Set the file data.  This is essentially the save operation.
 	 * Specifically, if the filetype is binary, the length and
@@ -499,6 +517,19 @@ public class ProdosFileEntry extends ProdosCommonEntry implements FileEntry {
 		getDisk().setFileData(this, data);
 	}
 
+	/**
+	 * Set the file data from a stream; the file is written a block at a time.
+	 * GEOS files are not streamed.
+	 */
+	@Override
+	public void setFileData(InputStream inputStream, int length) throws DiskFullException, IOException {
+		if (isGEOSFile()) {
+			FileEntry.super.setFileData(inputStream, length);
+		} else {
+			getDisk().setFileData(this, inputStream, length);
+		}
+	}
+
 	/**
 	 * Set the file data, with the expectation that both data and resource forks
 	 * are present (storage type $05).  See:
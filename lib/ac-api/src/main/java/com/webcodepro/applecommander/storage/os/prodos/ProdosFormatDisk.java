@@ -24,11 +24,16 @@ import com.webcodepro.applecommander.util.AppleUtil;
 import com.webcodepro.applecommander.util.TextBundle;
 import org.applecommander.device.BlockDevice;
 import org.applecommander.source.Source;
+import org.applecommander.util.BlockInputStream;
 import org.applecommander.util.Container;
 import org.applecommander.util.DataBuffer;
+import org.applecommander.util.ExtentReader;
+import org.applecommander.util.WriteBatch;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.*;
 
 import static com.webcodepro.applecommander.storage.DiskConstants.BLOCK_SIZE;
@@ -58,6 +63,14 @@ public class ProdosFormatDisk extends FormattedDisk {
 	 * The Volume Directory block number.
 	 */
 	private static final int VOLUME_DIRECTORY_BLOCK = 2;
+	/**
+	 * The most data blocks read from the device in one request (32K).
+	 */
+	private static final int MAXIMUM_EXTENT_BLOCKS = 64;
+	/**
+	 * Stands in for an unallocated index block of a sparse tree file.
+	 */
+	private static final byte[] EMPTY_INDEX_BLOCK = new byte[BLOCK_SIZE];
 	/**
 	 * A complete list of all known ProDOS filetypes.  Note that this
 	 * list really cannot be complete, as there are multiple mappings per
@@ -76,6 +89,27 @@ public class ProdosFormatDisk extends FormattedDisk {
 	private final ProdosVolumeDirectoryHeader volumeHeader;
 
 	private final BlockDevice device;
+	/**
+	 * Allocation cursor for {@link #findFreeBlock(byte[])}. No block before the cursor is free in
+	 * the bitmap it belongs to, so repeated allocations against the same bitmap do not rescan it
+	 * from the start. {@link #setBlockFree(byte[], int)} moves the cursor back as needed.
+	 */
+	private byte[] allocationBitmap;
+	private int allocationCursor;
+	/**
+	 * The volume bitmap as held during a batch; written out on commit.
+	 */
+	private byte[] batchBitmap;
+	/**
+	 * Incremented on every block write; directory entries use this to know when their
+	 * snapshot of the entry bytes may be stale.
+	 */
+	private int writeGeneration;
+	/**
+	 * Views the volume bitmap as big-endian longs; the high bit of each byte is the first block, so
+	 * the leading zeros of a long are the used blocks preceding the first free block.
+	 */
+	private static final VarHandle BITMAP_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
 
 	/**
 	 * This class holds filetype mappings.
@@ -196,12 +230,71 @@ public class ProdosFormatDisk extends FormattedDisk {
 	}
 
 	protected byte[] readBlock(int block) {
+		WriteBatch batch = getBatch();
+		if (batch != null) {
+			byte[] data = batch.read(block);
+			if (data != null) return data;
+		}
 		return device.readBlock(block).asBytes();
 	}
 	protected void writeBlock(int block, byte[] data) {
-		device.writeBlock(block, DataBuffer.wrap(data));
+		writeGeneration++;
+		invalidateFreeCount();
+		WriteBatch batch = getBatch();
+		if (batch != null) {
+			batch.write(block, data);
+		} else {
+			device.writeBlock(block, DataBuffer.wrap(data));
+		}
+	}
+	/**
+	 * Read a run of consecutive blocks.  Outside a batch this is a single device request.
+	 */
+	private byte[] readBlocks(int block, int count) {
+		if (getBatch() == null) {
+			return device.readBlocks(block, count).asBytes();
+		}
+		byte[] data = new byte[count * BLOCK_SIZE];
+		for (int i = 0; i < count; i++) {
+			System.arraycopy(readBlock(block + i), 0, data, i * BLOCK_SIZE, BLOCK_SIZE);
+		}
+		return data;
+	}
+
+	/**
+	 * ProDOS holds batched writes in memory, including the volume bitmap.
+	 */
+	@Override
+	public boolean supportsBatch() {
+		return true;
+	}
+	@Override
+	protected WriteBatch createBatch() {
+		return new WriteBatch(BLOCK_SIZE);
+	}
+	@Override
+	protected void commitBatch(WriteBatch pending) {
+		if (batchBitmap != null) {
+			int volumeBitmapBlock = volumeHeader.getBitMapPointer();
+			for (int i=0; i<batchBitmap.length/BLOCK_SIZE; i++) {
+				pending.write(volumeBitmapBlock+i, Arrays.copyOfRange(batchBitmap, i*BLOCK_SIZE, (i+1)*BLOCK_SIZE));
+			}
+		}
+		pending.flush((block, data, count) -> device.writeBlocks(block, DataBuffer.wrap(data)));
+		batchBitmap = null;
+		allocationBitmap = null;
+	}
+	@Override
+	protected void rollbackBatch() {
+		batchBitmap = null;
+		allocationBitmap = null;
+		writeGeneration++;
 	}
 	
+	int getWriteGeneration() {
+		return writeGeneration;
+	}
+
 	/**
 	 * Create a FileEntry in the given directory.
 	 */
@@ -287,16 +380,19 @@ public class ProdosFormatDisk extends FormattedDisk {
 			while (offset+ProdosCommonEntry.ENTRY_LENGTH < BLOCK_SIZE) {
 				ProdosCommonEntry tester = 
 					new ProdosCommonEntry(this, blockNumber, offset);
+				tester.snapshot(block);
 				if (tester.isVolumeHeader() || tester.isSubdirectoryHeader()) {
 					// ignore it, we've already got it
 				} else if (!tester.isEmpty()) {
 					ProdosFileEntry fileEntry = 
 						new ProdosFileEntry(this, blockNumber, offset);
+					fileEntry.snapshot(block);
 					if (fileEntry.isDirectory()) {
 						int keyPointer = fileEntry.getKeyPointer();
 						ProdosDirectoryEntry directoryEntry =
 							new ProdosDirectoryEntry(this, blockNumber, offset,
 								new ProdosSubdirectoryHeader(this, keyPointer));
+						directoryEntry.snapshot(block);
 						files.add(directoryEntry);
 					} else {
 						files.add(fileEntry);
@@ -321,16 +417,20 @@ public class ProdosFormatDisk extends FormattedDisk {
 	 * Return the number of free blocks on the disk.
 	 */
 	public int getFreeBlocks() {
-		int freeBlocks = 0;
-		int blocksToProcess = (volumeHeader.getTotalBlocks() + 4095) / 4096;
-		int blockNumber = volumeHeader.getBitMapPointer();
-		for (int ix=0; ix<blocksToProcess; ix++) {
-			byte[] block = readBlock(blockNumber+ix);
-			for (int byt=0; byt<block.length; byt++) {
-				freeBlocks+= AppleUtil.getBitCount(block[byt]);
+		return getCachedFreeCount(() -> {
+			int freeBlocks = 0;
+			int blocksToProcess = (volumeHeader.getTotalBlocks() + 4095) / 4096;
+			if (getBatch() != null) {
+				byte[] bitmap = readVolumeBitMap();
+				return AppleUtil.getBitCount(bitmap, 0, blocksToProcess * BLOCK_SIZE);
 			}
-		}
-		return freeBlocks;
+			int blockNumber = volumeHeader.getBitMapPointer();
+			for (int ix=0; ix<blocksToProcess; ix++) {
+				byte[] block = readBlock(blockNumber+ix);
+				freeBlocks+= AppleUtil.getBitCount(block, 0, block.length);
+			}
+			return freeBlocks;
+		});
 	}
 
 	/**
@@ -546,42 +646,143 @@ public class ProdosFormatDisk extends FormattedDisk {
 
 	/**
 	 * Get the data associated with the specified FileEntry.
-	 * Note that this could return a 16MB file!  Sparse files are not treated specially.
+	 * Note that this could return a 16MB file!  Holes in a sparse file (zero block pointers,
+	 * or a missing index block in a tree) read as zeros and are never fetched from the device.
+	 * Use {@link #getFileDataStream(FileEntry)} to read a large file incrementally.
 	 */
 	public byte[] getFileData(FileEntry fileEntry) {
+		ProdosFileEntry prodosEntry = toProdosFileEntry(fileEntry);
+		try (InputStream inputStream = getFileDataStream(prodosEntry)) {
+			return inputStream.readNBytes(prodosEntry.getEofPosition());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Get the data associated with the specified FileEntry as a stream.  Index blocks
+	 * and data blocks are read as the stream reaches them; runs of consecutive data
+	 * blocks are read from the device in one request.
+	 */
+	@Override
+	public InputStream getFileDataStream(FileEntry fileEntry) {
+		ProdosFileEntry prodosEntry = toProdosFileEntry(fileEntry);
+		if (!prodosEntry.isSeedlingFile() && !prodosEntry.isSaplingFile() && !prodosEntry.isTreeFile()) {
+			throw new IllegalArgumentException(textBundle.get("ProdosFormatDisk.UnknownStorageType")); //$NON-NLS-1$
+		}
+		ExtentReader extents = new ExtentReader(new DataBlockIterator(prodosEntry), BLOCK_SIZE,
+				Integer.MAX_VALUE, MAXIMUM_EXTENT_BLOCKS, this::readBlocks);
+		return new BlockInputStream(prodosEntry.getEofPosition(), extents);
+	}
+
+	private ProdosFileEntry toProdosFileEntry(FileEntry fileEntry) {
 		if ( !(fileEntry instanceof ProdosFileEntry)) {
 			throw new IllegalArgumentException(textBundle.get("ProdosFormatDisk.MustHaveEntry")); //$NON-NLS-1$
 		}
-		ProdosFileEntry prodosEntry = (ProdosFileEntry) fileEntry;
-		byte[] fileData = new byte[prodosEntry.getEofPosition()];
-		if (prodosEntry.isSeedlingFile()) {
-			byte[] blockData = readBlock(prodosEntry.getKeyPointer());
-			System.arraycopy(blockData, 0, fileData, 0, prodosEntry.getEofPosition());
-		} else if (prodosEntry.isSaplingFile()) {
-			byte[] indexBlock = readBlock(prodosEntry.getKeyPointer());
-			getIndexBlockData(fileData, indexBlock, 0);
-		} else if (prodosEntry.isTreeFile()) {
-			byte[] masterIndexBlock = readBlock(prodosEntry.getKeyPointer());
-			int offset = 0;
-			for (int i=0; i<0x100; i++) {
-				int blockNumber = AppleUtil.getWordValue(masterIndexBlock[i], masterIndexBlock[i+0x100]);
-				if (blockNumber > 0) {
-					// FIXME - this may break sparse files!
-					byte[] indexBlock = readBlock(blockNumber);
-					offset= getIndexBlockData(fileData, indexBlock, offset);
+		return (ProdosFileEntry) fileEntry;
+	}
+
+	/**
+	 * Answer the hole map of a seedling, sapling, or tree file: bit n is set when data
+	 * block n of the file is not allocated (it reads as zeros).  Only index blocks are read.
+	 */
+	public BitSet getHoleMap(FileEntry fileEntry) {
+		ProdosFileEntry prodosEntry = toProdosFileEntry(fileEntry);
+		if (!prodosEntry.isSeedlingFile() && !prodosEntry.isSaplingFile() && !prodosEntry.isTreeFile()) {
+			throw new IllegalArgumentException(textBundle.get("ProdosFormatDisk.UnknownStorageType")); //$NON-NLS-1$
+		}
+		BitSet holes = new BitSet();
+		DataBlockIterator blocks = new DataBlockIterator(prodosEntry);
+		for (int n = 0; blocks.hasNext(); n++) {
+			if (blocks.nextInt() == 0) {
+				holes.set(n);
+			}
+		}
+		return holes;
+	}
+
+	/**
+	 * Walks the data block numbers of a seedling, sapling, or tree file in file order, up
+	 * to the end of file.  Index blocks are only read when the walk reaches them.  A block
+	 * number of 0 is a hole in a sparse file; an unallocated index block in a tree file is
+	 * 256 holes.  Holes are never read from the device.
+	 */
+	private class DataBlockIterator implements PrimitiveIterator.OfInt {
+		private final byte[] masterIndexBlock;
+		private int masterPosition;
+		private byte[] indexBlock;
+		private int indexPosition;
+		private int seedlingBlock;
+		private int blocksRemaining;
+
+		private DataBlockIterator(ProdosFileEntry prodosEntry) {
+			int keyPointer = prodosEntry.getKeyPointer();
+			this.blocksRemaining = Math.max(1, (prodosEntry.getEofPosition() + BLOCK_SIZE - 1) / BLOCK_SIZE);
+			if (prodosEntry.isSeedlingFile()) {
+				this.masterIndexBlock = null;
+				this.seedlingBlock = keyPointer;
+			} else if (prodosEntry.isSaplingFile()) {
+				this.masterIndexBlock = null;
+				this.indexBlock = readBlock(keyPointer);
+				this.seedlingBlock = -1;
+			} else {
+				this.masterIndexBlock = readBlock(keyPointer);
+				this.seedlingBlock = -1;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (blocksRemaining <= 0) {
+				return false;
+			}
+			if (seedlingBlock >= 0) {
+				return true;
+			}
+			if (indexBlock == null || indexPosition >= 0x100) {
+				if (masterIndexBlock == null || masterPosition >= 0x100) {
+					return false;
 				}
+				int blockNumber = AppleUtil.getWordValue(masterIndexBlock[masterPosition],
+						masterIndexBlock[masterPosition+0x100]);
+				masterPosition++;
+				indexBlock = blockNumber == 0 ? EMPTY_INDEX_BLOCK : readBlock(blockNumber);
+				indexPosition = 0;
 			}
-		} else {
-			throw new IllegalArgumentException(textBundle.get("ProdosFormatDisk.UnknownStorageType")); //$NON-NLS-1$
+			return true;
+		}
+
+		@Override
+		public int nextInt() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			blocksRemaining--;
+			if (seedlingBlock >= 0) {
+				int blockNumber = seedlingBlock;
+				seedlingBlock = -1;
+				return blockNumber;
+			}
+			int blockNumber = AppleUtil.getWordValue(indexBlock[indexPosition], indexBlock[indexPosition+0x100]);
+			indexPosition++;
+			return blockNumber;
 		}
-		return fileData;
 	}
 
 	/**
 	 * Free blocks used by a ProdosFileEntry.
 	 */
 	protected void freeBlocks(ProdosFileEntry prodosFileEntry) {
+		if (prodosFileEntry.getKeyPointer() == 0) return;	// new entry
 		byte[] bitmap = readVolumeBitMap();
+		freeBlocks(prodosFileEntry, bitmap);
+		writeVolumeBitMap(bitmap);
+	}
+
+	/**
+	 * Mark the blocks used by a ProdosFileEntry as free in the given Volume Bitmap.
+	 */
+	private void freeBlocks(ProdosFileEntry prodosFileEntry, byte[] bitmap) {
 		int block = prodosFileEntry.getKeyPointer();
 		if (block == 0) return;	// new entry
 		if (prodosFileEntry.isGEOSFile()) {
@@ -605,7 +806,6 @@ public class ProdosFormatDisk extends FormattedDisk {
 				}
 			}
 		}
-		writeVolumeBitMap(bitmap);
 	}
 
 	/**
@@ -625,26 +825,6 @@ public class ProdosFormatDisk extends FormattedDisk {
 		}
 	}
 
-	/**
-	 * Read file data from the given index block.
-	 * Note that block number 0 is an unused block.
-	 */
-	protected int getIndexBlockData(byte[] fileData, byte[] indexBlock, int offset) {
-		for (int i=0; i<0x100; i++) {
-			int blockNumber = AppleUtil.getWordValue(indexBlock[i], indexBlock[i+0x100]);
-			byte[] blockData = readBlock(blockNumber);
-			if (offset + blockData.length > fileData.length) { // end of file
-				int bytesToCopy = fileData.length - offset;
-				if (blockNumber != 0) System.arraycopy(blockData, 0, fileData, offset, bytesToCopy);
-				offset+= bytesToCopy;
-				break;
-			}
-			if (blockNumber != 0) System.arraycopy(blockData, 0, fileData, offset, blockData.length);
-			offset+= blockData.length;
-		}
-		return offset;
-	}
-
 	/**
 	 * Set the data associated with the specified ProdosFileEntry into sectors
 	 * on the disk.  Automatically grows the filesystem structures from seedling
@@ -657,96 +837,166 @@ public class ProdosFormatDisk extends FormattedDisk {
 			// If this is a GEOS file, things are a bit different.
 			setGEOSFileData(fileEntry, fileData);
 		} else {
-			// compute free space and see if the data will fit!
-			int numberOfDataBlocks = (fileData.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
-			if (fileData.length == 0) numberOfDataBlocks = 1;
-			int numberOfBlocks = numberOfDataBlocks;
-			if (numberOfBlocks > 1) {
-				numberOfBlocks+= ((numberOfDataBlocks-1) / 256) + 1;	// that's 128K
-				if (numberOfDataBlocks > 256) {
-					numberOfBlocks++;
-				}
+			try {
+				writeFileData(fileEntry, new ByteArrayInputStream(fileData), fileData.length, true);
+			} catch (IOException e) {
+				// not possible with a byte array
+				throw new UncheckedIOException(e);
 			}
-			if (numberOfBlocks > getFreeBlocks() + fileEntry.getBlocksUsed()) {
-				throw new DiskFullException(textBundle.
-						format("ProdosFormatDisk.NotEnoughSpaceOnDiskError", //$NON-NLS-1$
-								numberOfBlocks, getFreeBlocks())
-						, this.getFilename());
+		}
+	}
+
+	/**
+	 * Set the data associated with the specified ProdosFileEntry from a stream of the
+	 * given length, one block at a time.  Automatically grows the filesystem structures
+	 * from seedling to sapling to tree.  When the free space covers the new data, it goes
+	 * to freshly allocated blocks while the old blocks stay in use; only once the stream
+	 * has been read are the old blocks released and the bitmap and entry updated, so a
+	 * stream that fails part way through leaves the disk and the entry as they were.
+	 * When the new data only fits once the old blocks are released, they are released
+	 * first, and a failing stream leaves the file damaged unless the write is part of a
+	 * batch that is rolled back.
+	 */
+	protected void setFileData(ProdosFileEntry fileEntry, InputStream inputStream, int fileLength)
+		throws DiskFullException, IOException {
+
+		writeFileData(fileEntry, inputStream, fileLength, false);
+	}
+
+	/**
+	 * Write the data for a ProdosFileEntry a block at a time.  Data that is already in
+	 * memory cannot fail part way, so its old blocks are always released first, as they
+	 * are for a stream that would not fit alongside them.
+	 */
+	private void writeFileData(ProdosFileEntry fileEntry, InputStream inputStream, int fileLength,
+			boolean inMemory) throws DiskFullException, IOException {
+
+		// compute free space and see if the data will fit!
+		int numberOfDataBlocks = (fileLength + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		if (fileLength == 0) numberOfDataBlocks = 1;
+		int numberOfBlocks = numberOfDataBlocks;
+		if (numberOfBlocks > 1) {
+			numberOfBlocks+= ((numberOfDataBlocks-1) / 256) + 1;	// that's 128K
+			if (numberOfDataBlocks > 256) {
+				numberOfBlocks++;
 			}
+		}
+		if (numberOfBlocks > getFreeBlocks() + fileEntry.getBlocksUsed()) {
+			throw new DiskFullException(textBundle.
+					format("ProdosFormatDisk.NotEnoughSpaceOnDiskError", //$NON-NLS-1$
+							numberOfBlocks, getFreeBlocks())
+					, this.getFilename());
+		}
+		boolean freeFirst = inMemory || numberOfBlocks > getFreeBlocks();
+		if (freeFirst) {
 			// free "old" data and just rewrite stuff...
 			freeBlocks(fileEntry);
-			byte[] bitmap = readVolumeBitMap();
-			int blockNumber = fileEntry.getKeyPointer();
-			if (blockNumber == 0) {
-				blockNumber = findFreeBlock(bitmap);
+		}
+		byte[] bitmap = readVolumeBitMap();
+		int blockNumber = freeFirst ? fileEntry.getKeyPointer() : 0;
+		if (blockNumber == 0) {
+			blockNumber = findFreeBlock(bitmap);
+		}
+		int indexBlockNumber = 0;
+		byte[] indexBlockData = null;
+		int masterIndexBlockNumber = 0;
+		byte[] masterIndexBlockData = new byte[BLOCK_SIZE];
+		boolean sparse = allowsHoles(fileEntry);
+		int offset = 0;
+		int dataBlock = 0;
+		int blockCount = 0;
+		// Need to let a file length go through once
+		while ((offset < fileLength) || ((fileLength == 0) && (offset == 0))){
+			byte[] blockData = new byte[BLOCK_SIZE];
+			int length = Math.min(BLOCK_SIZE, fileLength - offset);
+			if (inputStream.readNBytes(blockData, 0, length) != length) {
+				throw new EOFException(textBundle.format("ProdosFormatDisk.UnexpectedEndOfData", fileLength)); //$NON-NLS-1$
 			}
-			int indexBlockNumber = 0;
-			byte[] indexBlockData = null;
-			int masterIndexBlockNumber = 0;
-			byte[] masterIndexBlockData = new byte[BLOCK_SIZE];
-			int offset = 0;
-			int blockCount = 0;
-			// Need to let a file length go through once
-			while ((offset < fileData.length) || ((fileData.length == 0) && (offset == 0))){
+			// A block of zeros is left as a hole; the first block is always allocated
+			boolean hole = sparse && dataBlock > 0 && isEmpty(blockData);
+			if (!hole) {
 				if (blockCount > 0) blockNumber = findFreeBlock(bitmap);
 				setBlockUsed(bitmap, blockNumber);
 				blockCount++;
-				byte[] blockData = new byte[BLOCK_SIZE];
-				int length = Math.min(BLOCK_SIZE, fileData.length - offset);
-				System.arraycopy(fileData,offset,blockData,0,length);
 				writeBlock(blockNumber, blockData);
-				if (numberOfDataBlocks > 1) {
-					// growing to a tree file
-					if (offset > 0 && (offset / BLOCK_SIZE) % 256 == 0) {
-						if (masterIndexBlockNumber == 0) {
-							masterIndexBlockNumber = findFreeBlock(bitmap);
-							setBlockUsed(bitmap, masterIndexBlockNumber);
-							blockCount++;
-						}
-						writeBlock(indexBlockNumber, indexBlockData);
-						indexBlockData = null;
-						indexBlockNumber = 0;
-					}
-					// new index block
-					if (indexBlockData == null) {	// sapling files
-						indexBlockNumber = findFreeBlock(bitmap);
-						indexBlockData = new byte[BLOCK_SIZE];
-						setBlockUsed(bitmap, indexBlockNumber);
+			}
+			if (numberOfDataBlocks > 1) {
+				// growing to a tree file
+				if (dataBlock > 0 && dataBlock % 256 == 0) {
+					if (masterIndexBlockNumber == 0) {
+						masterIndexBlockNumber = findFreeBlock(bitmap);
+						setBlockUsed(bitmap, masterIndexBlockNumber);
 						blockCount++;
-						// This is only used for Tree files (but we always record it):
-						int position = (offset / (BLOCK_SIZE * 256));
-						byte low = (byte)(indexBlockNumber % 256);
-						byte high = (byte)(indexBlockNumber / 256);
-						masterIndexBlockData[position] = low;
-						masterIndexBlockData[position + 0x100] = high;
 					}
-					// record last block position in index block
-					int position = (offset / BLOCK_SIZE) % 256;
+					if (indexBlockData != null) {
+						writeBlock(indexBlockNumber, indexBlockData);
+					}
+					indexBlockData = null;
+					indexBlockNumber = 0;
+				}
+				// new index block; one that would only hold holes is never allocated
+				if (indexBlockData == null && !hole) {	// sapling files
+					indexBlockNumber = findFreeBlock(bitmap);
+					indexBlockData = new byte[BLOCK_SIZE];
+					setBlockUsed(bitmap, indexBlockNumber);
+					blockCount++;
+					// This is only used for Tree files (but we always record it):
+					int position = dataBlock / 256;
+					byte low = (byte)(indexBlockNumber % 256);
+					byte high = (byte)(indexBlockNumber / 256);
+					masterIndexBlockData[position] = low;
+					masterIndexBlockData[position + 0x100] = high;
+				}
+				// record last block position in index block
+				if (!hole) {
+					int position = dataBlock % 256;
 					byte low = (byte)(blockNumber % 256);
 					byte high = (byte)(blockNumber / 256);
 					indexBlockData[position] = low;
 					indexBlockData[position + 0x100] = high;
 				}
-				offset+= BLOCK_SIZE;
 			}
-			if (numberOfDataBlocks == 1) {
-				fileEntry.setKeyPointer(blockNumber);
-				fileEntry.setSeedlingFile();
-			} else if (numberOfDataBlocks <= 256) {
-				writeBlock(indexBlockNumber, indexBlockData);
-				fileEntry.setKeyPointer(indexBlockNumber);
-				fileEntry.setSaplingFile();
-			} else {
+			offset+= BLOCK_SIZE;
+			dataBlock++;
+		}
+		if (!freeFirst) {
+			// all data is written; now the old blocks can go
+			freeBlocks(fileEntry, bitmap);
+		}
+		if (numberOfDataBlocks == 1) {
+			fileEntry.setKeyPointer(blockNumber);
+			fileEntry.setSeedlingFile();
+		} else if (numberOfDataBlocks <= 256) {
+			writeBlock(indexBlockNumber, indexBlockData);
+			fileEntry.setKeyPointer(indexBlockNumber);
+			fileEntry.setSaplingFile();
+		} else {
+			if (indexBlockData != null) {
 				writeBlock(indexBlockNumber, indexBlockData);
-				writeBlock(masterIndexBlockNumber, masterIndexBlockData);
-				fileEntry.setKeyPointer(masterIndexBlockNumber);
-				fileEntry.setTreeFile();
 			}
-			fileEntry.setBlocksUsed(blockCount);
-			fileEntry.setEofPosition(fileData.length);
-			fileEntry.setLastModificationDate(new Date());
-			writeVolumeBitMap(bitmap);
+			writeBlock(masterIndexBlockNumber, masterIndexBlockData);
+			fileEntry.setKeyPointer(masterIndexBlockNumber);
+			fileEntry.setTreeFile();
+		}
+		fileEntry.setBlocksUsed(blockCount);
+		fileEntry.setEofPosition(fileLength);
+		fileEntry.setLastModificationDate(new Date());
+		writeVolumeBitMap(bitmap);
+	}
+
+	/**
+	 * Indicates if blocks of zeros may be written as holes.  System files are excluded,
+	 * as the boot code loads the PRODOS file by walking its index block directly.
+	 */
+	private boolean allowsHoles(ProdosFileEntry fileEntry) {
+		return fileEntry.getFiletypeByte() != 0xff;
+	}
+
+	private static boolean isEmpty(byte[] blockData) {
+		for (byte b : blockData) {
+			if (b != 0) return false;
 		}
+		return true;
 	}
 	
 	/**
@@ -1078,28 +1328,65 @@ public class ProdosFormatDisk extends FormattedDisk {
 	 * Locate a free block in the Volume Bitmap.
 	 */
 	protected int findFreeBlock(byte[] volumeBitmap) throws DiskFullException {
-		int block = 1;
-		int blocksOnDisk = getBitmapLength();
-		while (block < blocksOnDisk) {
-			if (isBlockFree(volumeBitmap,block)) {
-				if (block < device.getGeometry().blocksOnDevice()) {
-					return block;
-				}
-				throw new ProdosDiskSizeDoesNotMatchException(
-					textBundle.get("ProdosFormatDisk.ProdosDiskSizeDoesNotMatchError") //$NON-NLS-1$
-					, this.getFilename());
+		int block = (volumeBitmap == allocationBitmap) ? allocationCursor : 1;
+		block = nextFreeBlock(volumeBitmap, block, getBitmapLength());
+		if (block != -1) {
+			allocationBitmap = volumeBitmap;
+			allocationCursor = block;
+			if (block < device.getGeometry().blocksOnDevice()) {
+				return block;
 			}
-			block++;
+			throw new ProdosDiskSizeDoesNotMatchException(
+				textBundle.get("ProdosFormatDisk.ProdosDiskSizeDoesNotMatchError") //$NON-NLS-1$
+				, this.getFilename());
 		}
 		throw new DiskFullException(
 			textBundle.get("ProdosFormatDisk.NoFreeBlockAvailableError") //$NON-NLS-1$
 			, this.getFilename());
 	}
 	
+	/**
+	 * Locate the first free block at or after the given block (and before the limit), skipping
+	 * 64 used blocks at a time. Answers -1 if there is no free block.
+	 */
+	static int nextFreeBlock(byte[] volumeBitmap, int block, int limit) {
+		while (block < limit) {
+			int byt = block / 8;
+			if (block % 64 == 0 && byt + 8 <= volumeBitmap.length) {
+				long word = (long) BITMAP_LONGS.get(volumeBitmap, byt);
+				if (word == 0) {
+					block += 64;
+					continue;
+				}
+				block += Long.numberOfLeadingZeros(word);
+				return block < limit ? block : -1;
+			}
+			if ((volumeBitmap[byt] & (0x80 >> (block % 8))) != 0) {
+				return block;
+			}
+			block++;
+		}
+		return -1;
+	}
+
 	/**
 	 * Read the Volume Bit Map.
 	 */
 	public byte[] readVolumeBitMap() {
+		if (getBatch() != null) {
+			if (batchBitmap == null) {
+				batchBitmap = readVolumeBitMapBlocks();
+			}
+			byte[] copy = batchBitmap.clone();
+			if (allocationBitmap == batchBitmap) {
+				// The copy matches the bitmap the cursor belongs to, so the cursor carries over
+				allocationBitmap = copy;
+			}
+			return copy;
+		}
+		return readVolumeBitMapBlocks();
+	}
+	private byte[] readVolumeBitMapBlocks() {
 		int volumeBitmapBlock = volumeHeader.getBitMapPointer();
 		int blocksToRead = getVolumeBitmapBlockCount();
 		// Read in the entire volume bitmap:
@@ -1129,6 +1416,15 @@ public class ProdosFormatDisk extends FormattedDisk {
 			throw new IllegalArgumentException(
 				textBundle.get("ProdosFormatDisk.UnexpectedVolumeBitMapSizeError")); //$NON-NLS-1$
 		}
+		if (getBatch() != null) {
+			byte[] held = data.clone();
+			if (allocationBitmap == data) {
+				allocationBitmap = held;
+			}
+			batchBitmap = held;
+			invalidateFreeCount();
+			return;
+		}
 		byte[] dataBlock = new byte[BLOCK_SIZE];
 		for (int i=0; i<blocksToWrite; i++) {
 			System.arraycopy(data, i*BLOCK_SIZE, dataBlock, 0, BLOCK_SIZE);
@@ -1155,6 +1451,9 @@ public class ProdosFormatDisk extends FormattedDisk {
 		int byt = blockNumber / 8;
 		int bit = 7 - (blockNumber % 8);
 		data[byt] = AppleUtil.setBit(data[byt], bit);
+		if (data == allocationBitmap && blockNumber < allocationCursor) {
+			allocationCursor = blockNumber;
+		}
 	}
 	
 	/**
@@ -1179,6 +1478,7 @@ public class ProdosFormatDisk extends FormattedDisk {
 	 * @see com.webcodepro.applecommander.storage.FormattedDisk#format()
 	 */
 	public void format() {
+		writeGeneration++;
 		device.format();
 		DataBuffer bootBlock = DataBuffer.create(BLOCK_SIZE);
 		bootBlock.put(0, DataBuffer.wrap(getBootCode()));
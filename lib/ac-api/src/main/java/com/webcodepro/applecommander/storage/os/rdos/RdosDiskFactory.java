@@ -37,6 +37,11 @@ import static com.webcodepro.applecommander.storage.os.rdos.RdosFormatDisk.CATAL
 public class RdosDiskFactory implements DiskFactory {
     private final static Set<Integer> validFileTypes = Set.of(0xc1 /*A*/, 0xc2 /*B*/, 0xd4 /*T*/, 0xd3 /*S*/);
 
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.maybe13Sector() || ctx.maybe16Sector();
+    }
+
     @Override
     public void inspect(Context ctx) {
         ctx.trackSectorDevice()
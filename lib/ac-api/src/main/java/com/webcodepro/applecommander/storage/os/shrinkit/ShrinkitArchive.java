@@ -0,0 +1,201 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage.os.shrinkit;
+
+import com.webcodepro.shrinkit.HeaderBlock;
+import com.webcodepro.shrinkit.NuFileArchive;
+import com.webcodepro.shrinkit.ThreadKind;
+import com.webcodepro.shrinkit.ThreadRecord;
+import org.applecommander.capability.Capability;
+import org.applecommander.hint.Hint;
+import org.applecommander.source.Source;
+import org.applecommander.util.Container;
+import org.applecommander.util.DataBuffer;
+import org.applecommander.util.Information;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A read-only view of a NuFX (ShrinkIt) or Binary II archive. The header blocks are parsed
+ * when the archive is opened, but thread data remains compressed until it is requested via
+ * {@link #readThread(ThreadRecord)}. The archive is also the Source that the
+ * {@link ShrinkitDiskFactory} recognizes.
+ */
+public class ShrinkitArchive implements Source {
+    private final Source source;
+    private final String archiveType;
+    private final List<HeaderBlock> headerBlocks;
+    private final long archiveSize;
+
+    public ShrinkitArchive(Source source, String archiveType) throws IOException {
+        this.source = source;
+        this.archiveType = archiveType;
+        NuFileArchive archive = new NuFileArchive(new DataBufferInputStream(source.readAllBytes()));
+        this.headerBlocks = archive.getHeaderBlocks();
+        this.archiveSize = archive.getArchiveSize();
+    }
+
+    public List<HeaderBlock> getHeaderBlocks() {
+        return headerBlocks;
+    }
+
+    /** The uncompressed size of all threads in the archive. */
+    public long getArchiveSize() {
+        return archiveSize;
+    }
+
+    /** Locate the first thread of the given kind; ShrinkIt disk archives (SDK) carry a DISK_IMAGE thread. */
+    public Optional<ThreadRecord> findThread(ThreadKind kind) {
+        for (HeaderBlock headerBlock : headerBlocks) {
+            for (ThreadRecord thread : headerBlock.getThreadRecords()) {
+                if (thread.getThreadKind() == kind) {
+                    return Optional.of(thread);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Decompress the given thread. Nothing is cached; each call decompresses the thread again. */
+    public synchronized byte[] readThread(ThreadRecord thread) {
+        try (InputStream inputStream = thread.getInputStream()) {
+            byte[] data = inputStream.readNBytes((int) thread.getThreadEof());
+            if (data.length != thread.getThreadEof()) {
+                throw new IOException(String.format("expected %d bytes but only read %d",
+                        thread.getThreadEof(), data.length));
+            }
+            return data;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public String getArchiveType() {
+        return archiveType;
+    }
+
+    @Override
+    public int getSize() {
+        return source.getSize();
+    }
+
+    @Override
+    public String getName() {
+        return source.getName();
+    }
+
+    @Override
+    public DataBuffer readAllBytes() {
+        return source.readAllBytes();
+    }
+
+    @Override
+    public DataBuffer readBytes(int offset, int length) {
+        return source.readBytes(offset, length);
+    }
+
+    @Override
+    public void writeBytes(int offset, DataBuffer data) {
+        throw new RuntimeException("ShrinkIt archives are read-only");
+    }
+
+    @Override
+    public boolean hasChanged() {
+        return false;
+    }
+
+    @Override
+    public void clearChanges() {
+        // read-only; nothing to clear
+    }
+
+    @Override
+    public List<Information> information() {
+        List<Information> list = new ArrayList<>(source.information());
+        list.add(Information.builder("Image Type").value(archiveType));
+        list.add(Information.builder("Entries").value(headerBlocks.size()));
+        return list;
+    }
+
+    @Override
+    public boolean can(Capability capability) {
+        return false;
+    }
+
+    @Override
+    public boolean is(Hint hint) {
+        return hint == Hint.ORIGIN_SHRINKIT;
+    }
+
+    @Override
+    public <T> Optional<T> get(Class<T> iface) {
+        // Container.get would recurse if given 'this', so check ourselves first
+        if (iface.isInstance(this)) {
+            return Optional.of(iface.cast(this));
+        }
+        return Container.get(iface, source);
+    }
+
+    /**
+     * Feeds the NuFX parser directly from the Source buffer, avoiding a copy of the archive.
+     */
+    private static class DataBufferInputStream extends InputStream {
+        private final DataBuffer buffer;
+        private int position;
+
+        private DataBufferInputStream(DataBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (position >= buffer.limit()) {
+                return -1;
+            }
+            return buffer.getUnsignedByte(position++);
+        }
+
+        @Override
+        public int read(byte[] data, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            int available = buffer.limit() - position;
+            if (available <= 0) {
+                return -1;
+            }
+            int count = Math.min(length, available);
+            for (int i=0; i<count; i++) {
+                data[offset+i] = (byte) buffer.getUnsignedByte(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return Math.max(0, buffer.limit() - position);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage.os.shrinkit;
+
+import com.webcodepro.applecommander.storage.DiskFactory;
+
+/**
+ * Presents a ShrinkIt archive (as opened by {@link com.webcodepro.applecommander.storage.ShrinkitSourceFactory})
+ * as a read-only disk.
+ */
+public class ShrinkitDiskFactory implements DiskFactory {
+    @Override
+    public boolean isCandidate(Context ctx) {
+        return ctx.isArchive();
+    }
+
+    @Override
+    public void inspect(Context ctx) {
+        ctx.source.get(ShrinkitArchive.class).ifPresent(archive -> {
+            ctx.disks.add(new ShrinkitFormatDisk(ctx.source.getName(), archive));
+        });
+    }
+}
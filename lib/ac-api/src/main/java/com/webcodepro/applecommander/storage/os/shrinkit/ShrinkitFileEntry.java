@@ -0,0 +1,192 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage.os.shrinkit;
+
+import com.webcodepro.applecommander.storage.*;
+import com.webcodepro.applecommander.storage.filters.*;
+import com.webcodepro.applecommander.storage.os.prodos.ProdosFormatDisk;
+import com.webcodepro.applecommander.util.TextBundle;
+import com.webcodepro.shrinkit.HeaderBlock;
+import com.webcodepro.shrinkit.ThreadRecord;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a file within a ShrinkIt archive. Everything shown in a listing comes from the
+ * header block; the data fork is only decompressed when the file data is requested.
+ */
+public class ShrinkitFileEntry implements FileEntry {
+    private final TextBundle textBundle = StorageBundle.getInstance();
+    private final ShrinkitFormatDisk disk;
+    private final HeaderBlock headerBlock;
+    private final ThreadRecord dataFork;
+    private final ThreadRecord resourceFork;
+
+    public ShrinkitFileEntry(ShrinkitFormatDisk disk, HeaderBlock headerBlock,
+                             ThreadRecord dataFork, ThreadRecord resourceFork) {
+        this.disk = disk;
+        this.headerBlock = headerBlock;
+        this.dataFork = dataFork;
+        this.resourceFork = resourceFork;
+    }
+
+    public HeaderBlock getHeaderBlock() {
+        return headerBlock;
+    }
+
+    /** The ProDOS file type; only the low byte is meaningful to AppleCommander. */
+    public int getFiletypeByte() {
+        return (int) (headerBlock.getFileType() & 0xff);
+    }
+
+    public int getAuxiliaryType() {
+        return (int) (headerBlock.getExtraType() & 0xffff);
+    }
+
+    public boolean hasResourceFork() {
+        return resourceFork != null;
+    }
+
+    /** Decompress the resource fork (if any); returns null when there is no resource fork. */
+    public byte[] getResourceData() {
+        return resourceFork == null ? null : disk.getArchive().readThread(resourceFork);
+    }
+
+    @Override
+    public String getFilename() {
+        return headerBlock.getFilename();
+    }
+
+    @Override
+    public void setFilename(String filename) {
+        throw disk.readOnly();
+    }
+
+    @Override
+    public String getFiletype() {
+        return ProdosFormatDisk.getFiletype(getFiletypeByte());
+    }
+
+    @Override
+    public void setFiletype(String filetype) {
+        throw disk.readOnly();
+    }
+
+    /** Locked uses the ProDOS definition: cannot destroy, rename, or write. */
+    @Override
+    public boolean isLocked() {
+        return (headerBlock.getAccess() & 0xc2) == 0;
+    }
+
+    @Override
+    public void setLocked(boolean lock) {
+        throw disk.readOnly();
+    }
+
+    /** The uncompressed size of the data fork, as recorded in the thread header. */
+    @Override
+    public int getSize() {
+        return dataFork == null ? 0 : (int) dataFork.getThreadEof();
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    @Override
+    public boolean isDeleted() {
+        return false;
+    }
+
+    @Override
+    public void delete() {
+        throw disk.readOnly();
+    }
+
+    @Override
+    public List<String> getFileColumnData(int displayMode) {
+        NumberFormat numberFormat = NumberFormat.getNumberInstance();
+        List<String> list = new ArrayList<>();
+        list.add(getFilename());
+        list.add(getFiletype());
+        list.add(numberFormat.format(getSize()));
+        list.add(isLocked() ? textBundle.get("Locked") : "");  //$NON-NLS-1$//$NON-NLS-2$
+        return list;
+    }
+
+    @Override
+    public byte[] getFileData() {
+        return disk.getFileData(this);
+    }
+
+    /** Decompress the data fork; a file with only a resource fork has no data. */
+    byte[] readDataFork() {
+        return dataFork == null ? new byte[0] : disk.getArchive().readThread(dataFork);
+    }
+
+    @Override
+    public void setFileData(byte[] data) {
+        throw disk.readOnly();
+    }
+
+    @Override
+    public FileFilter getSuggestedFilter() {
+        return switch (getFiletypeByte()) {
+            case 0x04, 0xb0 -> new TextFileFilter();           // TXT, SRC
+            case 0xfa -> new IntegerBasicFileFilter();         // INT
+            case 0xfc -> new ApplesoftFileFilter();            // BAS
+            default -> new BinaryFileFilter();
+        };
+    }
+
+    @Override
+    public FormattedDisk getFormattedDisk() {
+        return disk;
+    }
+
+    @Override
+    public int getMaximumFilenameLength() {
+        return headerBlock.getFilename().length();
+    }
+
+    @Override
+    public boolean needsAddress() {
+        return disk.needsAddress(getFiletype());
+    }
+
+    @Override
+    public void setAddress(int address) {
+        throw disk.readOnly();
+    }
+
+    @Override
+    public int getAddress() {
+        if (getFiletypeByte() == 0xff) {
+            return 0x2000;  // SYS files start at $2000 by definition
+        }
+        else if (needsAddress()) {
+            return getAuxiliaryType();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage.os.shrinkit;
+
+import com.webcodepro.applecommander.storage.*;
+import com.webcodepro.applecommander.storage.os.prodos.ProdosFormatDisk;
+import com.webcodepro.applecommander.util.TextBundle;
+import com.webcodepro.shrinkit.HeaderBlock;
+import com.webcodepro.shrinkit.ThreadRecord;
+import org.applecommander.util.Container;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * A read-only FormattedDisk over the files in a ShrinkIt archive. Listing the archive only
+ * requires the header blocks; file data is decompressed on demand. Files are presented in a
+ * single list with their full archive pathname. To get a writable ProDOS volume, convert the
+ * archive instead (see {@link com.webcodepro.applecommander.storage.ShrinkitSourceFactory}).
+ */
+public class ShrinkitFormatDisk extends FormattedDisk {
+    private static final String[] FILETYPES = IntStream.range(0, 256)
+            .mapToObj(ProdosFormatDisk::getFiletype)
+            .toArray(String[]::new);
+
+    private final TextBundle textBundle = StorageBundle.getInstance();
+    private final ShrinkitArchive archive;
+    private List<FileEntry> files;
+
+    public ShrinkitFormatDisk(String filename, ShrinkitArchive archive) {
+        super(filename, archive);
+        this.archive = archive;
+    }
+
+    public ShrinkitArchive getArchive() {
+        return archive;
+    }
+
+    UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException(textBundle.get("ShrinkitFormatDisk.ReadOnly")); //$NON-NLS-1$
+    }
+
+    @Override
+    public <T> Optional<T> get(Class<T> iface) {
+        return Container.get(iface, archive);
+    }
+
+    @Override
+    public String getDiskName() {
+        return archive.getName();
+    }
+
+    @Override
+    public String getFormat() {
+        return archive.getArchiveType();
+    }
+
+    /**
+     * Build the file list from the header blocks. Entries without a data or resource fork
+     * (directories, comments, disk images) are not files and are skipped.
+     */
+    @Override
+    public synchronized List<FileEntry> getFiles() {
+        if (files == null) {
+            List<FileEntry> list = new ArrayList<>();
+            for (HeaderBlock headerBlock : archive.getHeaderBlocks()) {
+                ThreadRecord dataFork = headerBlock.getDataForkThreadRecord();
+                ThreadRecord resourceFork = headerBlock.getResourceForkThreadRecord();
+                if (dataFork != null || resourceFork != null) {
+                    list.add(new ShrinkitFileEntry(this, headerBlock, dataFork, resourceFork));
+                }
+            }
+            files = List.copyOf(list);
+        }
+        return files;
+    }
+
+    @Override
+    public FileEntry createFile() {
+        throw readOnly();
+    }
+
+    @Override
+    public DirectoryEntry createDirectory(String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean canCreateDirectories() {
+        return false;
+    }
+
+    @Override
+    public boolean canCreateFile() {
+        return false;
+    }
+
+    /** An archive has no free space to speak of. */
+    @Override
+    public int getFreeSpace() {
+        return 0;
+    }
+
+    /** The uncompressed size of the files in the archive. */
+    @Override
+    public int getUsedSpace() {
+        return getFiles().stream().mapToInt(FileEntry::getSize).sum();
+    }
+
+    @Override
+    public int[] getBitmapDimensions() {
+        return null;
+    }
+
+    @Override
+    public int getBitmapLength() {
+        return 0;
+    }
+
+    @Override
+    public DiskUsage getDiskUsage() {
+        return new DiskUsage() {
+            public boolean hasNext() {
+                return false;
+            }
+            public void next() {
+                throw new IllegalStateException();
+            }
+            public boolean isFree() {
+                return false;
+            }
+            public boolean isUsed() {
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String[] getBitmapLabels() {
+        return new String[] { textBundle.get("Block") }; //$NON-NLS-1$
+    }
+
+    @Override
+    public boolean supportsDeletedFiles() {
+        return false;
+    }
+
+    @Override
+    public boolean canReadFileData() {
+        return true;
+    }
+
+    @Override
+    public boolean canWriteFileData() {
+        return false;
+    }
+
+    @Override
+    public boolean canHaveDirectories() {
+        return false;
+    }
+
+    @Override
+    public boolean canDeleteFile() {
+        return false;
+    }
+
+    @Override
+    public byte[] getFileData(FileEntry fileEntry) {
+        if (fileEntry instanceof ShrinkitFileEntry shrinkitFileEntry) {
+            return shrinkitFileEntry.readDataFork();
+        }
+        throw new IllegalArgumentException("Must have a ShrinkIt file entry");
+    }
+
+    @Override
+    public void setFileData(FileEntry fileEntry, byte[] fileData) {
+        throw readOnly();
+    }
+
+    @Override
+    public void format() {
+        throw readOnly();
+    }
+
+    @Override
+    public int getLogicalDiskNumber() {
+        return 0;
+    }
+
+    @Override
+    public String getSuggestedFilename(String filename) {
+        return filename;
+    }
+
+    @Override
+    public String getSuggestedFiletype(String filename) {
+        return "BIN"; //$NON-NLS-1$
+    }
+
+    @Override
+    public String[] getFiletypes() {
+        return FILETYPES;
+    }
+
+    @Override
+    public boolean needsAddress(String filetype) {
+        return ProdosFormatDisk.fileTypeNeedsAddress(filetype);
+    }
+
+    @Override
+    public DiskGeometry getDiskGeometry() {
+        return DiskGeometry.BLOCK;
+    }
+
+    @Override
+    public String toNativeFiletype(String prodosFiletype) {
+        return prodosFiletype;
+    }
+
+    @Override
+    public String toProdosFiletype(String nativeFiletype) {
+        return nativeFiletype;
+    }
+}
@@ -19,6 +19,10 @@
  */
 package com.webcodepro.applecommander.ui;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
 /**
  * Make AppleCommander version available.
  * <p>
@@ -27,8 +31,27 @@ package com.webcodepro.applecommander.ui;
  */
 public class AppleCommander {
 	public static final String VERSION;
+	/**
+	 * Identifies the exact build of this library: a digest of its compiled classes, recorded
+	 * by the build. Every build of a release shares VERSION, but any change to the library
+	 * gives a new BUILD_ID; changes to the applications built on it do not.
+	 * This is null when not running from a packaged build (such as from an IDE).
+	 */
+	public static final String BUILD_ID;
 	
 	static {
 		VERSION = AppleCommander.class.getPackage().getImplementationVersion();
+		BUILD_ID = readBuildId();
+	}
+
+	private static String readBuildId() {
+		try (InputStream inputStream = AppleCommander.class.getResourceAsStream("build.properties")) {
+			if (inputStream == null) return null;
+			Properties properties = new Properties();
+			properties.load(inputStream);
+			return properties.getProperty("build.id");
+		} catch (IOException e) {
+			return null;
+		}
 	}
 }
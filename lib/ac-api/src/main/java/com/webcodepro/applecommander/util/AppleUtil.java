@@ -25,6 +25,9 @@ import org.applecommander.device.TrackSectorDevice;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
@@ -41,6 +44,10 @@ public class AppleUtil {
 	 * This is the number of bytes to display per line.
 	 */
 	private static final int BYTES_PER_LINE = 16;
+	/**
+	 * This is the number of blocks copied at a time when changing image order.
+	 */
+	private static final int BLOCKS_PER_COPY = 64;
 
 	/**
 	 * Bit masks used for the bit shifting or testing operations.
@@ -48,6 +55,10 @@ public class AppleUtil {
 	private static final byte[] masks = {
 			(byte)0x01, (byte)0x02, (byte)0x04, (byte)0x08, 
 			(byte)0x10, (byte)0x20, (byte)0x40, (byte)0x80 };
+	/**
+	 * View a byte array as longs for bulk bit counting; byte order does not matter for counting.
+	 */
+	private static final VarHandle longView = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
 	/**
 	 * Valid hex digits used when encoding or decoding hex.
 	 */
@@ -142,6 +153,22 @@ public class AppleUtil {
 		return count;
 	}
 	
+	/**
+	 * Count the number of bits set in a range of bytes, 8 bytes at a time.
+	 */
+	public static int getBitCount(byte[] data, int offset, int length) {
+		int count = 0;
+		int end = offset + length;
+		int ix = offset;
+		for (; ix+8 <= end; ix+= 8) {
+			count+= Long.bitCount((long) longView.get(data, ix));
+		}
+		for (; ix<end; ix++) {
+			count+= Integer.bitCount(data[ix] & 0xff);
+		}
+		return count;
+	}
+
 	/**
 	 * Determine if a specific bit is set.
 	 */
@@ -583,28 +610,28 @@ public class AppleUtil {
 	}
 
 	/**
-	 * Change block order from source order to target order by copying block by block.
+	 * Change block order from source order to target order by copying runs of blocks.
 	 */
 	public static void changeOrderByBlock(BlockDevice sourceOrder, BlockDevice targetOrder) {
 		if (!sourceOrder.getGeometry().equals(targetOrder.getGeometry())) {
 			throw new IllegalArgumentException(textBundle.get("AppleUtil.CannotChangeImageOrder"));
 		}
-		for (int block = 0; block < sourceOrder.getGeometry().blocksOnDevice(); block++) {
-			targetOrder.writeBlock(block, sourceOrder.readBlock(block));
+		final int blocksOnDevice = sourceOrder.getGeometry().blocksOnDevice();
+		for (int block = 0; block < blocksOnDevice; block += BLOCKS_PER_COPY) {
+			int count = Math.min(BLOCKS_PER_COPY, blocksOnDevice - block);
+			targetOrder.writeBlocks(block, sourceOrder.readBlocks(block, count));
 		}
 	}
 
     /**
-     * Change sector order from source order to target order by copying tracks and sectors between devices.
+     * Change sector order from source order to target order by copying whole tracks between devices.
      */
     public static void changeOrderBySector(TrackSectorDevice sourceDevice, TrackSectorDevice targetDevice) {
         if (!sourceDevice.getGeometry().equals(targetDevice.getGeometry())) {
             throw new IllegalArgumentException(textBundle.get("AppleUtil.CannotChangeImageOrder"));
         }
         for (int track = 0; track < sourceDevice.getGeometry().tracksOnDisk(); track++) {
-            for (int sector = 0; sector < sourceDevice.getGeometry().sectorsPerTrack(); sector++) {
-                targetDevice.writeSector(track, sector, sourceDevice.readSector(track, sector));
-            }
+            targetDevice.writeTrack(track, sourceDevice.readTrack(track));
         }
     }
 }
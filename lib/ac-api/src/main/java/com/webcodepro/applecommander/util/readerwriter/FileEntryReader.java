@@ -26,6 +26,8 @@ import com.webcodepro.applecommander.storage.os.pascal.PascalFileEntry;
 import com.webcodepro.applecommander.storage.os.prodos.ProdosFileEntry;
 import com.webcodepro.applecommander.storage.os.rdos.RdosFileEntry;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Optional;
@@ -37,6 +39,15 @@ public interface FileEntryReader {
     default Optional<Boolean> isLocked()                     { return Optional.empty(); }
     default Optional<byte[]> getFileData()                   { return Optional.empty(); }
     default Optional<byte[]> getResourceData()               { return Optional.empty(); }
+    /**
+     * The file data as a stream; readers that can stream from the disk avoid
+     * loading the whole file into memory.
+     */
+    default Optional<InputStream> getFileDataStream()        { return getFileData().map(ByteArrayInputStream::new); }
+    /**
+     * The length of the file data stream, when it is known without reading the file.
+     */
+    default Optional<Integer> getFileDataLength()            { return Optional.empty(); }
     /** 
      * The address embedded in binary objects. 
      * This varies by DOS's so is split apart. 
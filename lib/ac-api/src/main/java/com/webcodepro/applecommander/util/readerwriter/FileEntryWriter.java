@@ -24,6 +24,9 @@ import com.webcodepro.applecommander.storage.os.dos33.DosFileEntry;
 import com.webcodepro.applecommander.storage.os.pascal.PascalFileEntry;
 import com.webcodepro.applecommander.storage.os.prodos.ProdosFileEntry;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Date;
 
 public interface FileEntryWriter {
@@ -32,6 +35,14 @@ public interface FileEntryWriter {
     default void setProdosFiletype(String filetype)          { }
     default void setLocked(boolean flag)                     { }
     default void setFileData(byte[] data)                    { }
+    /** Set the file data from a stream of the given length. */
+    default void setFileData(InputStream inputStream, int length) {
+        try {
+            setFileData(inputStream.readNBytes(length));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
     // Special case for GS/OS files (uglifies API; sets 0x05)
     default void setFileData(byte[] data, byte[] resource)   { }
     /** 
@@ -22,6 +22,9 @@ package com.webcodepro.applecommander.util.readerwriter;
 import com.webcodepro.applecommander.storage.DiskFullException;
 import com.webcodepro.applecommander.storage.os.prodos.ProdosFileEntry;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.Date;
 import java.util.Optional;
 
@@ -64,6 +67,14 @@ public class ProdosFileEntryReaderWriter implements FileEntryReader, FileEntryWr
         return Optional.ofNullable(fileEntry.getFileData());
     }
     @Override
+    public Optional<InputStream> getFileDataStream() {
+        return Optional.of(fileEntry.getFileDataStream());
+    }
+    @Override
+    public Optional<Integer> getFileDataLength() {
+        return Optional.of(fileEntry.getSize());
+    }
+    @Override
     public void setFileData(byte[] data) {
         try {
             fileEntry.setFileData(data);
@@ -72,6 +83,16 @@ public class ProdosFileEntryReaderWriter implements FileEntryReader, FileEntryWr
         }
     }
     @Override
+    public void setFileData(InputStream inputStream, int length) {
+        try {
+            fileEntry.setFileData(inputStream, length);
+        } catch (DiskFullException e) {
+            throw new RuntimeException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    @Override
     public void setFileData(byte[] data, byte[] resource) {
         try {
             // If we have a resource fork in addition to a data fork,
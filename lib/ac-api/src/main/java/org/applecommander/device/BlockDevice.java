@@ -33,6 +33,31 @@ public interface BlockDevice extends Device {
     Geometry getGeometry();
     DataBuffer readBlock(int block);
     void writeBlock(int block, DataBuffer blockData);
+    /**
+     * Read a run of consecutive blocks into one buffer. Devices that can satisfy the entire
+     * range in a single access should override this; the default reads block by block.
+     */
+    default DataBuffer readBlocks(int block, int count) {
+        final int blockSize = getGeometry().blockSize();
+        assert(block >= 0 && block + count <= getGeometry().blocksOnDevice());
+        DataBuffer data = DataBuffer.create(count * blockSize);
+        for (int i = 0; i < count; i++) {
+            data.put(i * blockSize, readBlock(block + i));
+        }
+        return data;
+    }
+    /**
+     * Write a run of consecutive blocks, starting at the given block. The buffer must be a
+     * multiple of the block size. The default writes block by block.
+     */
+    default void writeBlocks(int block, DataBuffer data) {
+        final int blockSize = getGeometry().blockSize();
+        assert(data.limit() % blockSize == 0);
+        assert(block >= 0 && block + data.limit() / blockSize <= getGeometry().blocksOnDevice());
+        for (int offset = 0; offset < data.limit(); offset += blockSize) {
+            writeBlock(block + offset / blockSize, data.slice(offset, blockSize));
+        }
+    }
     /**
      * Format a disk. For most disks, this is simply a wipe to all zeros. If this
      * disk has extended format (such as nibble formats), this is the opportunity
@@ -0,0 +1,93 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device;
+
+import org.applecommander.capability.Capability;
+import org.applecommander.hint.Hint;
+import org.applecommander.util.Container;
+import org.applecommander.util.DataBuffer;
+import org.applecommander.util.WriteBack;
+
+import java.util.Optional;
+
+/**
+ * Keeps the most recently used blocks of a BlockDevice in memory. This can wrap any BlockDevice
+ * in the chain; placed on top of adapters it saves the (re)mapping and buffer assembly they do on
+ * each call. Cache counters are available via {@code get(DeviceCache.Statistics.class)}.
+ */
+public class CachingBlockDevice implements BlockDevice, WriteBack {
+    private final BlockDevice device;
+    private final DeviceCache cache;
+
+    public CachingBlockDevice(BlockDevice device, DeviceCache.Config config) {
+        this.device = device;
+        this.cache = new DeviceCache(config, device::readBlock, device::writeBlock);
+    }
+    public CachingBlockDevice(BlockDevice device, int capacity, DeviceCache.WritePolicy writePolicy) {
+        this(device, new DeviceCache.Config(capacity, writePolicy));
+    }
+
+    @Override
+    public <T> Optional<T> get(Class<T> iface) {
+        return Container.get(iface, cache.statistics(), device);
+    }
+
+    @Override
+    public boolean is(Hint hint) {
+        return device.is(hint);
+    }
+
+    @Override
+    public boolean can(Capability capability) {
+        return device.can(capability);
+    }
+
+    @Override
+    public Geometry getGeometry() {
+        return device.getGeometry();
+    }
+
+    @Override
+    public DataBuffer readBlock(int block) {
+        return cache.read(block);
+    }
+
+    @Override
+    public void writeBlock(int block, DataBuffer blockData) {
+        cache.write(block, blockData);
+    }
+
+    @Override
+    public void format() {
+        cache.clear();
+        device.format();
+    }
+
+    @Override
+    public boolean hasPendingChanges() {
+        return cache.hasDirtyEntries() || Container.get(WriteBack.class, device).map(WriteBack::hasPendingChanges).orElse(false);
+    }
+
+    @Override
+    public void flush() {
+        cache.flush();
+        Container.get(WriteBack.class, device).ifPresent(WriteBack::flush);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device;
+
+import org.applecommander.capability.Capability;
+import org.applecommander.hint.Hint;
+import org.applecommander.util.Container;
+import org.applecommander.util.DataBuffer;
+import org.applecommander.util.WriteBack;
+
+import java.util.Optional;
+
+/**
+ * Keeps the most recently used sectors of a TrackSectorDevice in memory. This can wrap any
+ * TrackSectorDevice in the chain; placed on top of skewing or nibble devices it saves the
+ * mapping and decoding work on each call. Cache counters are available via
+ * {@code get(DeviceCache.Statistics.class)}.
+ */
+public class CachingTrackSectorDevice implements TrackSectorDevice, WriteBack {
+    private final TrackSectorDevice device;
+    private final int sectorsPerTrack;
+    private final DeviceCache cache;
+
+    public CachingTrackSectorDevice(TrackSectorDevice device, DeviceCache.Config config) {
+        this.device = device;
+        this.sectorsPerTrack = device.getGeometry().sectorsPerTrack();
+        this.cache = new DeviceCache(config,
+            key -> device.readSector(key / sectorsPerTrack, key % sectorsPerTrack),
+            (key, data) -> device.writeSector(key / sectorsPerTrack, key % sectorsPerTrack, data));
+    }
+    public CachingTrackSectorDevice(TrackSectorDevice device, int capacity, DeviceCache.WritePolicy writePolicy) {
+        this(device, new DeviceCache.Config(capacity, writePolicy));
+    }
+
+    @Override
+    public <T> Optional<T> get(Class<T> iface) {
+        return Container.get(iface, cache.statistics(), device);
+    }
+
+    @Override
+    public boolean is(Hint hint) {
+        return device.is(hint);
+    }
+
+    @Override
+    public boolean can(Capability capability) {
+        return device.can(capability);
+    }
+
+    @Override
+    public Geometry getGeometry() {
+        return device.getGeometry();
+    }
+
+    @Override
+    public DataBuffer readSector(int track, int sector) {
+        assert(sector >= 0 && sector < sectorsPerTrack);
+        return cache.read(track * sectorsPerTrack + sector);
+    }
+
+    @Override
+    public void writeSector(int track, int sector, DataBuffer data) {
+        assert(sector >= 0 && sector < sectorsPerTrack);
+        cache.write(track * sectorsPerTrack + sector, data);
+    }
+
+    @Override
+    public void format() {
+        cache.clear();
+        device.format();
+    }
+
+    @Override
+    public boolean hasPendingChanges() {
+        return cache.hasDirtyEntries() || Container.get(WriteBack.class, device).map(WriteBack::hasPendingChanges).orElse(false);
+    }
+
+    @Override
+    public void flush() {
+        cache.flush();
+        Container.get(WriteBack.class, device).ifPresent(WriteBack::flush);
+    }
+}
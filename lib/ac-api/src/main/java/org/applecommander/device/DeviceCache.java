@@ -0,0 +1,168 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device;
+
+import org.applecommander.util.DataBuffer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A least-recently-used cache of device units (blocks or sectors) keyed by an int. This is the shared
+ * engine behind {@link CachingBlockDevice} and {@link CachingTrackSectorDevice}.
+ * <p/>
+ * Buffers are copied going in and coming out, so callers can never modify cached data behind the
+ * cache's back. With {@link WritePolicy#WRITE_BACK}, writes are held (dirty) until they are evicted
+ * or {@link #flush()} is called. A unit the device cannot read (null) is passed along and not cached.
+ * <p/>
+ * The access-ordered map changes on every read, so all access is synchronized; this keeps a cached
+ * device as safe to share between threads as the nibble devices underneath it.
+ */
+public final class DeviceCache {
+    public enum WritePolicy {
+        /** Writes update the cache and are immediately passed along to the device. */
+        WRITE_THROUGH,
+        /** Writes update the cache only; the device is updated on eviction or flush. */
+        WRITE_BACK
+    }
+
+    /** Cache configuration, as used by {@code DiskFactory.Context}. */
+    public record Config(int capacity, WritePolicy writePolicy) {
+        public Config {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("cache capacity must be at least 1: " + capacity);
+            }
+        }
+    }
+
+    /** A point-in-time view of the cache counters; located via {@code Container.get(Statistics.class)}. */
+    public record Statistics(int capacity, int size, int dirty, long hits, long misses, long evictions) {}
+
+    interface UnitWriter {
+        void write(int key, DataBuffer data);
+    }
+
+    private final int capacity;
+    private final WritePolicy writePolicy;
+    private final IntFunction<DataBuffer> reader;
+    private final UnitWriter writer;
+    private final LinkedHashMap<Integer,Entry> entries;
+    private int dirtyCount;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    DeviceCache(Config config, IntFunction<DataBuffer> reader, UnitWriter writer) {
+        this.capacity = config.capacity();
+        this.writePolicy = config.writePolicy();
+        this.reader = reader;
+        this.writer = writer;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer,Entry> eldest) {
+                if (size() > capacity) {
+                    evictions++;
+                    if (eldest.getValue().dirty) {
+                        dirtyCount--;
+                        writer.write(eldest.getKey(), eldest.getValue().data);
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    synchronized DataBuffer read(int key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hits++;
+        }
+        else {
+            misses++;
+            DataBuffer data = reader.apply(key);
+            if (data == null) return null;
+            entry = new Entry(copy(data));
+            entries.put(key, entry);
+        }
+        return copy(entry.data);
+    }
+
+    synchronized void write(int key, DataBuffer data) {
+        DataBuffer copy = copy(data);
+        Entry entry = entries.get(key);
+        boolean dirty = writePolicy == WritePolicy.WRITE_BACK;
+        if (entry == null) {
+            entry = new Entry(copy);
+            entries.put(key, entry);
+        }
+        else {
+            if (entry.dirty) dirtyCount--;
+            entry.data = copy;
+        }
+        entry.dirty = dirty;
+        if (dirty) {
+            dirtyCount++;
+        }
+        else {
+            writer.write(key, copy);
+        }
+    }
+
+    synchronized boolean hasDirtyEntries() {
+        return dirtyCount > 0;
+    }
+
+    /** Write all dirty entries to the device (in key order), keeping them cached. */
+    synchronized void flush() {
+        if (dirtyCount == 0) return;
+        entries.entrySet().stream()
+            .filter(e -> e.getValue().dirty)
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(e -> {
+                writer.write(e.getKey(), e.getValue().data);
+                e.getValue().dirty = false;
+            });
+        dirtyCount = 0;
+    }
+
+    /** Drop everything, including unwritten changes (used when the device is formatted). */
+    synchronized void clear() {
+        entries.clear();
+        dirtyCount = 0;
+    }
+
+    synchronized Statistics statistics() {
+        return new Statistics(capacity, entries.size(), dirtyCount, hits, misses, evictions);
+    }
+
+    private static DataBuffer copy(DataBuffer data) {
+        return DataBuffer.wrap(data.asBytes());
+    }
+
+    private static class Entry {
+        DataBuffer data;
+        boolean dirty;
+        Entry(DataBuffer data) {
+            this.data = data;
+        }
+    }
+}
@@ -86,6 +86,23 @@ public class DosOrderedTrackSectorDevice implements TrackSectorDevice {
         source.writeBytes(calculateOffset(track,sector), data);
     }
 
+    @Override
+    public DataBuffer readSectors(int track, int sector, int count) {
+        assert(sector + count <= geometry.sectorsPerTrack());
+        return source.readBytes(calculateOffset(track,sector), count*SECTOR_SIZE);
+    }
+
+    @Override
+    public DataBuffer readTrack(int track) {
+        return source.readBytes(calculateOffset(track,0), geometry.sectorsPerTrack()*SECTOR_SIZE);
+    }
+
+    @Override
+    public void writeTrack(int track, DataBuffer data) {
+        assert(data.limit() == geometry.sectorsPerTrack()*SECTOR_SIZE);
+        source.writeBytes(calculateOffset(track,0), data);
+    }
+
     public int calculateOffset(int track, int sector) {
         assert(track < geometry.tracksOnDisk());
         assert(sector < geometry.sectorsPerTrack());
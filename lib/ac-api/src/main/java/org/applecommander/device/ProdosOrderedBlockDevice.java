@@ -69,4 +69,17 @@ public class ProdosOrderedBlockDevice implements BlockDevice {
         assert(blockData.limit() == geometry.blockSize());
         source.writeBytes(block*geometry.blockSize(), blockData);
     }
+
+    @Override
+    public DataBuffer readBlocks(int block, int count) {
+        assert(block + count <= geometry.blocksOnDevice());
+        return source.readBytes(block*geometry.blockSize(), count*geometry.blockSize());
+    }
+
+    @Override
+    public void writeBlocks(int block, DataBuffer data) {
+        assert(data.limit() % geometry.blockSize() == 0);
+        assert(block + data.limit()/geometry.blockSize() <= geometry.blocksOnDevice());
+        source.writeBytes(block*geometry.blockSize(), data);
+    }
 }
@@ -57,43 +57,75 @@ import java.util.Optional;
  */
 public class SkewedTrackSectorDevice implements TrackSectorDevice {
     public static TrackSectorDevice physicalToDosSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device,
+        return skew(device,
                 0x0, 0xd, 0xb, 0x9, 0x7, 0x5, 0x3, 0x1,
                 0xe, 0xc, 0xa, 0x8, 0x6, 0x4, 0x2, 0xf);
     }
     public static TrackSectorDevice physicalToPascalSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device,
+        return skew(device,
                 0x0, 0x2, 0x4, 0x6, 0x8, 0xa, 0xc, 0xe,
                 0x1, 0x3, 0x5, 0x7, 0x9, 0xb, 0xd, 0xf);
     }
     public static TrackSectorDevice pascalToPhysicalSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device,
+        return skew(device,
                 0x0, 0x8, 0x1, 0x9, 0x2, 0xa, 0x3, 0xb,
                 0x4, 0xc, 0x5, 0xd, 0x6, 0xe, 0x7, 0xf);
     }
     public static TrackSectorDevice dosToPhysicalSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device,
+        return skew(device,
                 0x0, 0x7, 0xe, 0x6, 0xd, 0x5, 0xc, 0x4,
                 0xb, 0x3, 0xa, 0x2, 0x9, 0x1, 0x8, 0xf);
     }
     public static TrackSectorDevice dosToPascalSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device,
+        return skew(device,
                 0x0, 0xe, 0xd, 0xc, 0xb, 0xa, 0x9, 0x8,
                 0x7, 0x6, 0x5, 0x4, 0x3, 0x2, 0x1, 0xf);
     }
     // CP/M skews are from 'cpmtools'
     public static TrackSectorDevice dosToCpmSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device, 0,6,12,3,9,15,14,5,11,2,8,7,13,4,10,1);
+        return skew(device, 0,6,12,3,9,15,14,5,11,2,8,7,13,4,10,1);
     }
     public static TrackSectorDevice pascalToCpmSkew(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device, 0,9,3,12,6,15,1,10,4,13,7,8,2,11,5,14);
+        return skew(device, 0,9,3,12,6,15,1,10,4,13,7,8,2,11,5,14);
     }
     // Special RDOS "skew" for truncation (from 16 sector to 13 sector)
     public static TrackSectorDevice truncate16sectorTo13(TrackSectorDevice device) {
-        return new SkewedTrackSectorDevice(device,
+        return skew(device,
                 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12);
     }
 
+    /**
+     * Wrap the device with the given skew. When the device is already skewed, the two tables are
+     * composed so that a sector access only passes through a single table lookup; a composition that
+     * turns out to be the identity across the entire track needs no wrapper at all.
+     */
+    private static TrackSectorDevice skew(TrackSectorDevice device, int... sectorSkew) {
+        if (device instanceof SkewedTrackSectorDevice skewed && fits(sectorSkew, skewed.sectorSkew.length)) {
+            int[] composed = new int[sectorSkew.length];
+            for (int sector = 0; sector < sectorSkew.length; sector++) {
+                composed[sector] = skewed.sectorSkew[sectorSkew[sector]];
+            }
+            device = skewed.device;
+            sectorSkew = composed;
+        }
+        if (sectorSkew.length == device.getGeometry().sectorsPerTrack() && isIdentity(sectorSkew)) {
+            return device;
+        }
+        return new SkewedTrackSectorDevice(device, sectorSkew);
+    }
+    private static boolean fits(int[] sectorSkew, int sectorsPerTrack) {
+        for (int sector : sectorSkew) {
+            if (sector >= sectorsPerTrack) return false;
+        }
+        return true;
+    }
+    private static boolean isIdentity(int[] sectorSkew) {
+        for (int sector = 0; sector < sectorSkew.length; sector++) {
+            if (sectorSkew[sector] != sector) return false;
+        }
+        return true;
+    }
+
     private final TrackSectorDevice device;
     private final int[] sectorSkew;
     private final Geometry geometry;
@@ -105,6 +137,15 @@ public class SkewedTrackSectorDevice implements TrackSectorDevice {
         this.geometry = new Geometry(device.getGeometry().tracksOnDisk(), sectorSkew.length);
     }
 
+    /** The device being skewed; used by adapters to map sectors without another call layer. */
+    TrackSectorDevice getDevice() {
+        return device;
+    }
+    /** The physical sector for the given logical sector. */
+    int mapSector(int sector) {
+        return sectorSkew[sector];
+    }
+
     @Override
     public <T> Optional<T> get(Class<T> iface) {
         return Container.get(iface, device);
@@ -140,6 +181,37 @@ public class SkewedTrackSectorDevice implements TrackSectorDevice {
         device.writeSector(track, sectorSkew[sector], data);
     }
 
+    /**
+     * Read the whole track from the underlying device and reorder it. The truncating "skew" does not
+     * cover the entire track, so that falls back to sector by sector.
+     */
+    @Override
+    public DataBuffer readTrack(int track) {
+        if (sectorSkew.length != device.getGeometry().sectorsPerTrack()) {
+            return TrackSectorDevice.super.readTrack(track);
+        }
+        DataBuffer trackData = device.readTrack(track);
+        DataBuffer data = DataBuffer.create(trackData.limit());
+        for (int sector = 0; sector < sectorSkew.length; sector++) {
+            data.put(sector * SECTOR_SIZE, trackData.slice(sectorSkew[sector] * SECTOR_SIZE, SECTOR_SIZE));
+        }
+        return data;
+    }
+
+    @Override
+    public void writeTrack(int track, DataBuffer data) {
+        if (sectorSkew.length != device.getGeometry().sectorsPerTrack()) {
+            TrackSectorDevice.super.writeTrack(track, data);
+            return;
+        }
+        assert(data.limit() == sectorSkew.length * SECTOR_SIZE);
+        DataBuffer trackData = DataBuffer.create(data.limit());
+        for (int sector = 0; sector < sectorSkew.length; sector++) {
+            trackData.put(sectorSkew[sector] * SECTOR_SIZE, data.slice(sector * SECTOR_SIZE, SECTOR_SIZE));
+        }
+        device.writeTrack(track, trackData);
+    }
+
     @Override
     public void format() {
         device.format();
@@ -27,6 +27,49 @@ public interface TrackSectorDevice extends Device {
     Geometry getGeometry();
     DataBuffer readSector(int track, int sector);
     void writeSector(int track, int sector, DataBuffer data);
+    /**
+     * Read a run of consecutive sectors on one track into one buffer. Devices that can
+     * satisfy the entire range in a single access should override this; the default reads
+     * sector by sector.
+     */
+    default DataBuffer readSectors(int track, int sector, int count) {
+        assert(sector >= 0 && sector + count <= getGeometry().sectorsPerTrack());
+        DataBuffer data = DataBuffer.create(count * SECTOR_SIZE);
+        for (int i = 0; i < count; i++) {
+            DataBuffer sectorData = readSector(track, sector + i);
+            if (sectorData == null) {
+                throw new RuntimeException(String.format("unable to read T%02d,S%02d", track, sector + i));
+            }
+            data.put(i * SECTOR_SIZE, sectorData);
+        }
+        return data;
+    }
+    /**
+     * Read all sectors of a track into one buffer, in sector order. Devices that can read a
+     * track in a single access should override this; the default reads sector by sector.
+     */
+    default DataBuffer readTrack(int track) {
+        final int sectorsPerTrack = getGeometry().sectorsPerTrack();
+        DataBuffer data = DataBuffer.create(sectorsPerTrack * SECTOR_SIZE);
+        for (int sector = 0; sector < sectorsPerTrack; sector++) {
+            DataBuffer sectorData = readSector(track, sector);
+            if (sectorData == null) {
+                throw new RuntimeException(String.format("unable to read T%02d,S%02d", track, sector));
+            }
+            data.put(sector * SECTOR_SIZE, sectorData);
+        }
+        return data;
+    }
+    /**
+     * Write all sectors of a track, in sector order. The default writes sector by sector.
+     */
+    default void writeTrack(int track, DataBuffer data) {
+        final int sectorsPerTrack = getGeometry().sectorsPerTrack();
+        assert(data.limit() == sectorsPerTrack * SECTOR_SIZE);
+        for (int sector = 0; sector < sectorsPerTrack; sector++) {
+            writeSector(track, sector, data.slice(sector * SECTOR_SIZE, SECTOR_SIZE));
+        }
+    }
     /**
      * Format a disk. For most disks, this is simply a wipe to all zeros. If this
      * disk has extended format (such as nibble formats), this is the opportunity
@@ -23,6 +23,7 @@ import org.applecommander.capability.Capability;
 import org.applecommander.device.nibble.DiskMarker;
 import org.applecommander.device.nibble.NibbleDiskCodec;
 import org.applecommander.device.nibble.NibbleScanner;
+import org.applecommander.device.nibble.NibbleTrackIndex;
 import org.applecommander.device.nibble.NibbleTrackReaderWriter;
 import org.applecommander.hint.Hint;
 import org.applecommander.util.Container;
@@ -62,12 +63,12 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
      * it appears Ultima I may have used it. :-)
      */
     public static Optional<TrackSectorDevice> identify(NibbleTrackReaderWriter trackReaderWriter) {
-        CountFn countFn = diskMarkers -> {
-            TrackSectorDevice device = new TrackSectorNibbleDevice(trackReaderWriter, diskMarkers);
+        // Note that the device that is returned is the one that was counted, so the tracks it decoded stay cached
+        CountFn countFn = device -> {
             int count = 0;
             for (int track = 0; track < trackReaderWriter.getTracksOnDevice(); track++) {
                 try {
-                    int sectorsOnTrack = diskMarkers[track % diskMarkers.length].sectorsOnTrack();
+                    int sectorsOnTrack = device.diskMarkers[track % device.diskMarkers.length].sectorsOnTrack();
                     DataBuffer sectorData = device.readSector(track, sectorsOnTrack-1);
                     if (sectorData.limit() == SECTOR_SIZE) {
                         count++;
@@ -79,45 +80,56 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
             return count;
         };
         // Try normal disks first:
-        int count16 = countFn.count(DiskMarker.disk525sector16());
+        TrackSectorNibbleDevice device16 = new TrackSectorNibbleDevice(trackReaderWriter, DiskMarker.disk525sector16());
+        int count16 = countFn.count(device16);
         if (count16 >= 30) {
-            return Optional.of(new TrackSectorNibbleDevice(trackReaderWriter, DiskMarker.disk525sector16()));
+            return Optional.of(device16);
         }
-        int count13 = countFn.count(DiskMarker.disk525sector13());
+        TrackSectorNibbleDevice device13 = new TrackSectorNibbleDevice(trackReaderWriter, DiskMarker.disk525sector13());
+        int count13 = countFn.count(device13);
         if (count13 >= 30) {
-            return Optional.of(new TrackSectorNibbleDevice(trackReaderWriter, DiskMarker.disk525sector13()));
+            return Optional.of(device13);
         }
 
         // Now try scanning for it...
         Optional<DiskMarker[]> optResult = NibbleScanner.identify(trackReaderWriter);
         if (optResult.isPresent()) {
-            DiskMarker[] diskMarkers = optResult.get();
-            int countNibble = countFn.count(diskMarkers);
+            TrackSectorNibbleDevice deviceNibble = new TrackSectorNibbleDevice(trackReaderWriter, optResult.get());
+            int countNibble = countFn.count(deviceNibble);
             if (countNibble > count13 && countNibble > count16) {
-                return Optional.of(new TrackSectorNibbleDevice(trackReaderWriter, diskMarkers));
+                return Optional.of(deviceNibble);
             }
         }
         // Fall to next best then:
         if (count16 > count13 && count16 > 3) {
-            return Optional.of(new TrackSectorNibbleDevice(trackReaderWriter, DiskMarker.disk525sector16()));
+            return Optional.of(device16);
         }
         if (count13 > count16 && count13 > 3) {
-            return Optional.of(new TrackSectorNibbleDevice(trackReaderWriter, DiskMarker.disk525sector13()));
+            return Optional.of(device13);
         }
         return Optional.empty();
     }
     interface CountFn {
-        int count(DiskMarker... diskMarkers);
+        int count(TrackSectorNibbleDevice device);
     }
 
     /**
-     * This is the "data" component of the address field: 2 x (Volume, Track, Sector, Checksum).
+     * Number of decoded tracks kept in memory. A 5.25" disk has 35 (at most 40) tracks; keeping
+     * all of them means identification plus a full inspection decodes each track only once.
      */
-    private final static int ADDRESS_FIELD_SIZE = 8;
+    private final static int TRACK_CACHE_SIZE = 40;
     private final NibbleTrackReaderWriter trackReaderWriter;
     private final DiskMarker[] diskMarkers;
     private final Geometry geometry;
     private final Set<Hint> hints;
+    private final Map<Integer,DecodedTrack> trackCache = new LinkedHashMap<>(TRACK_CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, DecodedTrack> eldest) {
+            return size() > TRACK_CACHE_SIZE;
+        }
+    };
+    private int trackCacheHits;
+    private int trackCacheMisses;
 
     private TrackSectorNibbleDevice(NibbleTrackReaderWriter trackReaderWriter, DiskMarker... diskMarkers) {
         this.trackReaderWriter = trackReaderWriter;
@@ -156,12 +168,13 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
     }
 
     // Temporary shim. This likely should be added into all devices.
-    public List<Information> information() {
+    public synchronized List<Information> information() {
         List<Information> list = new ArrayList<>();
         list.add(Information.builder("Device").value("Nibble Device"));
         list.add(Information.builder("Geometry").value("%d tracks, %d sectors", geometry.tracksOnDisk(),
                 geometry.sectorsPerTrack()));
         list.add(Information.builder("Total Sectors").value(geometry.sectorsPerDisk()));
+        list.add(Information.builder("Track Cache").value("%d hits, %d misses", trackCacheHits, trackCacheMisses));
         if (diskMarkers.length == 1) {
             list.add(Information.builder("Prolog/Epilog Bytes").value("%s/%s (%d sectors on track)",
                     formatBytes(diskMarkers[0].addressProlog()), formatBytes(diskMarkers[0].dataProlog()),
@@ -218,69 +231,114 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
         return -1;  // not found
     }
 
-    public int findSector(DataBuffer trackData, int track, int sector) {
-        int offset = 0;
-        DataBuffer addressField = DataBuffer.create(ADDRESS_FIELD_SIZE);
-        boolean found = false;
-        int attempts = 16;  // TODO do we need to be more specific?
-        DiskMarker diskMarker = diskMarkers[track % diskMarkers.length];
-        while (!found && attempts >= 0) {
-            int nextOffset = locateField(diskMarker.addressProlog(), trackData, addressField, offset);
-            if (nextOffset == -1) break;
-            attempts--;
-            offset = nextOffset;
-            int t = decodeOddEven(addressField, 2);
-            int s = decodeOddEven(addressField, 4);
-            found = (t == track && s == sector);
+    /**
+     * Retrieve the track from the cache, reading (and indexing) the nibble data when not present.
+     */
+    private DecodedTrack getTrack(int track) {
+        DecodedTrack decodedTrack = trackCache.get(track);
+        if (decodedTrack != null) {
+            trackCacheHits++;
+            return decodedTrack;
         }
-        if (!found) {
-            var msg = String.format("unable to locate T%02d,S%02d", track, sector);
+        trackCacheMisses++;
+        DiskMarker diskMarker = diskMarkers[track % diskMarkers.length];
+        byte[] trackData = trackReaderWriter.readTrackData(track).asBytes();
+        decodedTrack = new DecodedTrack(trackData, NibbleTrackIndex.index(trackData, track, diskMarker),
+                new byte[diskMarker.sectorsOnTrack() * SECTOR_SIZE], new boolean[diskMarker.sectorsOnTrack()]);
+        trackCache.put(track, decodedTrack);
+        return decodedTrack;
+    }
+
+    /**
+     * Locate the data field for this sector. Note that the error messages differentiate between
+     * a missing sector (no address field) and a sector we could not read (no data field).
+     */
+    private int findDataField(DecodedTrack decodedTrack, int track, int sector, String operation) {
+        int offset = decodedTrack.index().dataFieldOffset(sector);
+        if (offset == -1) {
+            var msg = decodedTrack.index().addressFieldOffset(sector) == -1
+                    ? String.format("unable to locate T%02d,S%02d", track, sector)
+                    : String.format("unable to %s T%02d,S%02d", operation, track, sector);
             throw new RuntimeException(msg);
         }
         return offset;
     }
 
     @Override
-    public DataBuffer readSector(int track, int sector) {
-        final DataBuffer trackData = trackReaderWriter.readTrackData(track);
-        // Locate address field for this track and sector
-        int offset = findSector(trackData, track, sector);
-        // Read data field that immediately follows the address field and the checksum byte
-        if (offset != -1) {
-            DiskMarker diskMarker = diskMarkers[track % diskMarkers.length];
-            NibbleDiskCodec dataCodec = diskMarker.codec();
-            DataBuffer dataField = DataBuffer.create(dataCodec.encodedSize() + 1);
-            offset = locateField(diskMarker.dataProlog(), trackData, dataField, offset);
-            if (offset != -1) {
-                return dataCodec.decode(dataField);
-            }
+    public synchronized DataBuffer readSector(int track, int sector) {
+        final DecodedTrack decodedTrack = getTrack(track);
+        if (!decodeSector(decodedTrack, track, sector)) {
+            return null;
         }
-        // We found the sector but couldn't read the sector, fail horribly
-        var msg = String.format("unable to read T%02d,S%02d", track, sector);
-        throw new RuntimeException(msg);
+        return DataBuffer.wrap(Arrays.copyOfRange(decodedTrack.sectorData(), sector * SECTOR_SIZE,
+                (sector + 1) * SECTOR_SIZE));
     }
 
+    /**
+     * Read every sector on the track. The track is only read (and indexed) once, and the decoded
+     * sectors are copied directly into the result.
+     */
     @Override
-    public void writeSector(int track, int sector, DataBuffer data) {
-        final DataBuffer trackData = trackReaderWriter.readTrackData(track);
-        // Locate address field for this track and sector
-        int offset = findSector(trackData, track, sector);
-        // Locate data field that immediately follows the address field and the checksum byte
-        if (offset != -1) {
-            DiskMarker diskMarker = diskMarkers[track % diskMarkers.length];
-            NibbleDiskCodec dataCodec = diskMarker.codec();
-            DataBuffer tmpField = DataBuffer.create(0);
-            offset = locateField(diskMarker.dataProlog(), trackData, tmpField, offset);
-            if (offset != -1) {
-                // TODO we likely need to handle wrapping conditions here somewhere.
-                trackData.put(offset, dataCodec.encode(data));
-                trackReaderWriter.writeTrackData(track, trackData);
-                return;
+    public synchronized DataBuffer readTrack(int track) {
+        final DecodedTrack decodedTrack = getTrack(track);
+        final int sectorsOnTrack = diskMarkers[track % diskMarkers.length].sectorsOnTrack();
+        for (int sector = 0; sector < sectorsOnTrack; sector++) {
+            if (!decodeSector(decodedTrack, track, sector)) {
+                throw new RuntimeException(String.format("unable to read T%02d,S%02d", track, sector));
             }
         }
-        // We found the sector but couldn't write the sector, fail horribly
-        var msg = String.format("unable to write T%02d,S%02d", track, sector);
-        throw new RuntimeException(msg);
+        byte[] data = Arrays.copyOf(decodedTrack.sectorData(), geometry.sectorsPerTrack() * SECTOR_SIZE);
+        return DataBuffer.wrap(data);
+    }
+
+    /**
+     * Decode the sector into the cached track, unless that was already done. The codec works directly
+     * on the nibble track (wrapping around the end as needed), so nothing is allocated per sector.
+     * Returns false if the sector could not be decoded.
+     */
+    private boolean decodeSector(DecodedTrack decodedTrack, int track, int sector) {
+        if (sector < decodedTrack.decoded().length && decodedTrack.decoded()[sector]) {
+            return true;
+        }
+        int offset = findDataField(decodedTrack, track, sector, "read");
+        NibbleDiskCodec dataCodec = diskMarkers[track % diskMarkers.length].codec();
+        if (dataCodec.decode(decodedTrack.trackData(), offset, decodedTrack.sectorData(), sector * SECTOR_SIZE)) {
+            decodedTrack.decoded()[sector] = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void writeSector(int track, int sector, DataBuffer data) {
+        final DecodedTrack decodedTrack = getTrack(track);
+        // Write-through: whatever happens, the decoded sectors for this track are no longer valid
+        trackCache.remove(track);
+        encodeSector(decodedTrack, track, sector, data.asBytes(), 0);
+        trackReaderWriter.writeTrackData(track, DataBuffer.wrap(decodedTrack.trackData()));
+    }
+
+    /**
+     * Write every sector on the track. All sectors are encoded into the nibble track before it is
+     * written back, so the track is only written once.
+     */
+    @Override
+    public synchronized void writeTrack(int track, DataBuffer data) {
+        assert(data.limit() == geometry.sectorsPerTrack() * SECTOR_SIZE);
+        final DecodedTrack decodedTrack = getTrack(track);
+        trackCache.remove(track);
+        final int sectorsOnTrack = diskMarkers[track % diskMarkers.length].sectorsOnTrack();
+        final byte[] sectorData = data.asBytes();
+        for (int sector = 0; sector < sectorsOnTrack; sector++) {
+            encodeSector(decodedTrack, track, sector, sectorData, sector * SECTOR_SIZE);
+        }
+        trackReaderWriter.writeTrackData(track, DataBuffer.wrap(decodedTrack.trackData()));
+    }
+
+    private void encodeSector(DecodedTrack decodedTrack, int track, int sector, byte[] data, int dataOffset) {
+        assert(data.length - dataOffset >= SECTOR_SIZE);
+        int offset = findDataField(decodedTrack, track, sector, "write");
+        diskMarkers[track % diskMarkers.length].codec().encode(data, dataOffset, decodedTrack.trackData(), offset);
     }
 
     @Override
@@ -293,12 +351,14 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
         }
     }
 
-    public void formatTrack(int track) {
+    public synchronized void formatTrack(int track) {
         // create address and data fields
         DiskMarker diskMarker = diskMarkers[0];
         DataBuffer addressField = DataBuffer.create(14);
         DataBuffer dataField = DataBuffer.create(349);
-        dataField.fill(0x96);
+        byte[] emptySector = new byte[diskMarker.codec().encodedSize() + 1];
+        diskMarker.codec().encode(new byte[SECTOR_SIZE], 0, emptySector, 0);
+        dataField.put(3, DataBuffer.wrap(emptySector));
         DataBuffer addressProlog = DataBuffer.wrap(diskMarker.addressProlog());
         DataBuffer addressEpilog = DataBuffer.wrap(diskMarker.addressEpilog());
         DataBuffer dataProlog = DataBuffer.wrap(diskMarker.dataProlog());
@@ -311,6 +371,7 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
         int addressSync = 43;	// number of sync bytes before address field
         int dataSync = 10;		// number of sync bytes before data field
         int volume = 254;		// disk volume# is always 254
+        trackCache.remove(track);
         DataBuffer trackData = trackReaderWriter.readTrackData(track);
         trackData.fill(0xff);
         int offset = 0;
@@ -331,4 +392,12 @@ public class TrackSectorNibbleDevice implements TrackSectorDevice {
         trackReaderWriter.writeTrackData(track, trackData);
 
     }
+
+    /**
+     * Cached track. The nibble track data and its sector index are retained so sectors can be located
+     * without another read (which, for WOZ images, is a full bitstream transform) and each sector is
+     * decoded at most once, directly into its slot in the sector data.
+     */
+    private record DecodedTrack(byte[] trackData, NibbleTrackIndex index, byte[] sectorData, boolean[] decoded) {
+    }
 }
@@ -36,11 +36,30 @@ public class TrackSectorToBlockAdapter implements BlockDevice {
     private final TrackSectorDevice device;
     private final BlockStyle style;
     private final Geometry geometry;
+    /**
+     * Sector level access goes directly to the device underneath a skew, using the skew table
+     * here (rather than calling through the skewed device for every sector).
+     */
+    private final TrackSectorDevice sectorDevice;
+    private final int[] sectorMap;
 
     public TrackSectorToBlockAdapter(TrackSectorDevice device, BlockStyle style) {
         this.device = device;
         this.style = style;
         this.geometry = new Geometry(style.blockSize, device.getGeometry().deviceSize() / style.blockSize);
+        this.sectorMap = new int[device.getGeometry().sectorsPerTrack()];
+        if (device instanceof SkewedTrackSectorDevice skewed) {
+            this.sectorDevice = skewed.getDevice();
+            for (int sector = 0; sector < sectorMap.length; sector++) {
+                sectorMap[sector] = skewed.mapSector(sector);
+            }
+        }
+        else {
+            this.sectorDevice = device;
+            for (int sector = 0; sector < sectorMap.length; sector++) {
+                sectorMap[sector] = sector;
+            }
+        }
     }
 
     @Override
@@ -66,14 +85,50 @@ public class TrackSectorToBlockAdapter implements BlockDevice {
     @Override
     public DataBuffer readBlock(int block) {
         DataBuffer data = DataBuffer.create(style.blockSize);
-        operate(block, (t,s,o) -> data.put(o, device.readSector(t,s)));
+        operate(block, (t,s,o) -> data.put(o, sectorDevice.readSector(t,s)));
         return data;
     }
 
     @Override
     public void writeBlock(int block, DataBuffer blockData) {
         assert blockData.limit() == style.blockSize;
-        operate(block, (t,s,o) -> device.writeSector(t, s, blockData.slice(o, TrackSectorDevice.SECTOR_SIZE)));
+        operate(block, (t,s,o) -> sectorDevice.writeSector(t, s, blockData.slice(o, TrackSectorDevice.SECTOR_SIZE)));
+    }
+
+    /**
+     * Read a run of blocks. Tracks entirely covered by the range are read as a whole track, which
+     * lets nibble and file-backed devices serve each track in a single access.
+     */
+    @Override
+    public DataBuffer readBlocks(int block, int count) {
+        DataBuffer data = DataBuffer.create(count * style.blockSize);
+        operateTracks(block, count, (t,s,n,o) -> {
+            if (n == device.getGeometry().sectorsPerTrack()) {
+                data.put(o, device.readTrack(t));
+            }
+            else {
+                for (int i = 0; i < n; i++) {
+                    data.put(o + i*TrackSectorDevice.SECTOR_SIZE, sectorDevice.readSector(t, sectorMap[s+i]));
+                }
+            }
+        });
+        return data;
+    }
+
+    @Override
+    public void writeBlocks(int block, DataBuffer data) {
+        assert data.limit() % style.blockSize == 0;
+        operateTracks(block, data.limit() / style.blockSize, (t,s,n,o) -> {
+            if (n == device.getGeometry().sectorsPerTrack()) {
+                device.writeTrack(t, data.slice(o, n*TrackSectorDevice.SECTOR_SIZE));
+            }
+            else {
+                for (int i = 0; i < n; i++) {
+                    int offset = o + i*TrackSectorDevice.SECTOR_SIZE;
+                    sectorDevice.writeSector(t, sectorMap[s+i], data.slice(offset, TrackSectorDevice.SECTOR_SIZE));
+                }
+            }
+        });
     }
 
     private void operate(int block, Operation operation) {
@@ -84,7 +139,7 @@ public class TrackSectorToBlockAdapter implements BlockDevice {
         int sector = physicalSector % device.getGeometry().sectorsPerTrack();
         while (offset < style.blockSize) {
             assert sector < device.getGeometry().sectorsPerTrack();
-            operation.perform(track, sector, offset);
+            operation.perform(track, sectorMap[sector], offset);
             sector++;   // note that we assume we never wrap to next track
             offset += TrackSectorDevice.SECTOR_SIZE;
         }
@@ -93,6 +148,27 @@ public class TrackSectorToBlockAdapter implements BlockDevice {
         void perform(int track, int sector, int offset);
     }
 
+    /** Split a run of blocks into the (possibly partial) tracks it covers. */
+    private void operateTracks(int block, int count, TrackOperation operation) {
+        assert block >= 0 && block + count <= geometry.blocksOnDevice();
+        final int sectorsPerTrack = device.getGeometry().sectorsPerTrack();
+        int physicalSector = block * style.sectorsPerBlock;
+        int remaining = count * style.sectorsPerBlock;
+        int offset = 0;
+        while (remaining > 0) {
+            int track = physicalSector / sectorsPerTrack;
+            int sector = physicalSector % sectorsPerTrack;
+            int sectors = Math.min(remaining, sectorsPerTrack - sector);
+            operation.perform(track, sector, sectors, offset);
+            physicalSector += sectors;
+            remaining -= sectors;
+            offset += sectors * TrackSectorDevice.SECTOR_SIZE;
+        }
+    }
+    private interface TrackOperation {
+        void perform(int track, int firstSector, int sectorCount, int offset);
+    }
+
     @Override
     public void format() {
         device.format();
@@ -79,48 +79,80 @@ public class Nibble53Disk525Codec implements NibbleDiskCodec {
     @Override
     public DataBuffer decode(DataBuffer rawData) {
         assert(rawData.limit() == RAW_BUFFER_SIZE+1);   // includes checksum
-        // Translate data field and check the checksum
-        DataBuffer buffer = DataBuffer.create(RAW_BUFFER_SIZE);
+        byte[] sectorData = new byte[SECTOR_SIZE];
+        if (!decode(rawData.asBytes(), 0, sectorData, 0)) {
+            return null;    // BAD DATA -- FIXME when logging is enabled
+        }
+        return DataBuffer.wrap(sectorData);
+    }
+
+    /**
+     * Each disk byte is the XOR of two consecutive 5-bit values, so the value at any position is the
+     * running XOR of the translated disk bytes. The field holds 154 "low bit" values (written in
+     * reverse) followed by 256 "upper 5 bit" values. Each group of 5 sector bytes draws from five
+     * upper-bit runs (walked backwards) and three low-bit runs (walked forwards), so those eight
+     * running values are tracked directly instead of being captured into a scratch buffer.
+     * <p/>
+     * Note: This reads from these ranges and leaves two bytes that we use at end:
+     * 0x00-0x33, 0x33-0x65, 0x66-0x98, 0x99-0xcb, 0xcc-0xfe, 0xff - unused
+     * 0x100-0x132, 0x133-0x165, 0x166-0x198, 0x199 - unused
+     */
+    @Override
+    public boolean decode(byte[] track, int offset, byte[] sector, int sectorOffset) {
+        // Capture the starting points of each run while verifying the checksum
         int checksum = 0;
-        for (int i=0; i<RAW_BUFFER_SIZE; i++) {
-            int b = rawData.getUnsignedByte(i);
-            checksum ^= readTranslateTable53[b];		// XOR
-            if (i < 154) {
-                buffer.putByte(RAW_BUFFER_SIZE - i - 1, checksum);
-            } else {
-                buffer.putByte(i - 154, checksum);
+        int c210d0e0 = 0, b210d1e1 = 0, a210d2e2 = 0, last210 = 0;
+        int a76543 = 0, b76543 = 0, c76543 = 0, d76543 = 0, e76543 = 0, last76543 = 0;
+        for (int i=0; i<=RAW_BUFFER_SIZE; i++) {
+            checksum ^= readTranslateTable53[track[wrap(track, offset + i)] & 0xff];
+            switch (i) {
+                case 1 -> c210d0e0 = checksum;
+                case 52 -> b210d1e1 = checksum;
+                case 103 -> a210d2e2 = checksum;
+                case 155 -> last210 = checksum;
+                case 204 -> a76543 = checksum;
+                case 255 -> b76543 = checksum;
+                case 306 -> c76543 = checksum;
+                case 357 -> d76543 = checksum;
+                case 408 -> e76543 = checksum;
+                case 409 -> last76543 = checksum;
             }
         }
-        checksum ^= readTranslateTable53[rawData.getUnsignedByte(RAW_BUFFER_SIZE)];
-        if (checksum != 0) return null;	// BAD DATA -- FIXME when logging is enabled
-        // Decode the data field
-        // Note: This reads from these ranges and leaves two bytes that we use at end:
-        // 0x00-0x33, 0x33-0x65, 0x66-0x98, 0x99-0xcb, 0xcc-0xfe, 0xff - unused
-        // 0x100-0x132, 0x133-0x165, 0x166-0x198, 0x199 - unused
-        DataBuffer sectorData = DataBuffer.create(SECTOR_SIZE);
+        if (checksum != 0) return false;
+        int position = sectorOffset;
         for (int i=0x33-1; i>= 0; i--) {
-            int a76543 = buffer.getUnsignedByte(i);
-            int b76543 = buffer.getUnsignedByte(0x33 + i);
-            int c76543 = buffer.getUnsignedByte(0x66 + i);
-            int d76543 = buffer.getUnsignedByte(0x99 + i);
-            int e76543 = buffer.getUnsignedByte(0xcc + i);
-            int a210d2e2 = buffer.getUnsignedByte(0x100 + i);
-            int b210d1e1 = buffer.getUnsignedByte(0x133 + i);
-            int c210d0e0 = buffer.getUnsignedByte(0x166 + i);
-
-            sectorData.writeByte(a76543 << 3 | (a210d2e2 >> 2) & 0x7);
-            sectorData.writeByte(b76543 << 3 | (b210d1e1 >> 2) & 0x7);
-            sectorData.writeByte(c76543 << 3 | (c210d0e0 >> 2) & 0x7);
-            sectorData.writeByte(d76543 << 3 | (a210d2e2 << 1) & 0x4 | b210d1e1 & 0x2 | (c210d0e0 >> 1) & 0x1);
-            sectorData.writeByte(e76543 << 3 | (a210d2e2 << 2) & 0x4 | (b210d1e1 << 1) & 0x2 | c210d0e0 & 0x1);
+            sector[position++] = (byte) (a76543 << 3 | (a210d2e2 >> 2) & 0x7);
+            sector[position++] = (byte) (b76543 << 3 | (b210d1e1 >> 2) & 0x7);
+            sector[position++] = (byte) (c76543 << 3 | (c210d0e0 >> 2) & 0x7);
+            sector[position++] = (byte) (d76543 << 3 | (a210d2e2 << 1) & 0x4 | b210d1e1 & 0x2 | (c210d0e0 >> 1) & 0x1);
+            sector[position++] = (byte) (e76543 << 3 | (a210d2e2 << 2) & 0x4 | (b210d1e1 << 1) & 0x2 | c210d0e0 & 0x1);
+            // Step each run to the next value
+            a210d2e2 ^= readTranslateTable53[track[wrap(track, offset + 154 - i)] & 0xff];
+            b210d1e1 ^= readTranslateTable53[track[wrap(track, offset + 103 - i)] & 0xff];
+            c210d0e0 ^= readTranslateTable53[track[wrap(track, offset + 52 - i)] & 0xff];
+            a76543 ^= readTranslateTable53[track[wrap(track, offset + 154 + i)] & 0xff];
+            b76543 ^= readTranslateTable53[track[wrap(track, offset + 205 + i)] & 0xff];
+            c76543 ^= readTranslateTable53[track[wrap(track, offset + 256 + i)] & 0xff];
+            d76543 ^= readTranslateTable53[track[wrap(track, offset + 307 + i)] & 0xff];
+            e76543 ^= readTranslateTable53[track[wrap(track, offset + 358 + i)] & 0xff];
         }
-        sectorData.writeByte(buffer.getUnsignedByte(0xff) << 3 | buffer.getUnsignedByte(0x199 & 0x07));
-        assert(sectorData.position() == SECTOR_SIZE);
-        return sectorData;
+        // Note: this combines the values the same way the buffered implementation always has
+        sector[position] = (byte) (last76543 << 3 | last210);
+        return true;
     }
 
     @Override
     public DataBuffer encode(DataBuffer data) {
         throw new RuntimeException("5&3 encoding not implemented");
     }
+
+    @Override
+    public void encode(byte[] sector, int sectorOffset, byte[] track, int offset) {
+        throw new RuntimeException("5&3 encoding not implemented");
+    }
+
+    /** Wrap a position around the end of the (circular) track. */
+    private static int wrap(byte[] track, int position) {
+        return position < track.length ? position : position - track.length;
+    }
 }
@@ -54,6 +54,24 @@ public class Nibble62Disk525Codec implements NibbleDiskCodec {
         }
     }
 
+    /** Number of 6-bit values holding the low 2 bits of the sector bytes. */
+    private static final int LOW_BITS_SIZE = 86;
+    /** Reverse the 2 low bits of a value. */
+    private static final int[] REVERSE = { 0x0, 0x2, 0x1, 0x3 };
+    /**
+     * The "denibblize" table for the low bits: indexed by (group &lt;&lt; 6 | 6-bit value), where group
+     * is the sector byte divided by 86; gives the 2 low bits for that sector byte.
+     */
+    private static final int[] lowBitsTable;
+    static {
+        lowBitsTable = new int[3 << 6];
+        for (int group = 0; group < 3; group++) {
+            for (int value = 0; value < 0x40; value++) {
+                lowBitsTable[group << 6 | value] = REVERSE[(value >> (group * 2)) & 0x03];
+            }
+        }
+    }
+
     @Override
     public boolean can(Capability capability) {
         return capability == Capability.ENCODE;
@@ -82,84 +100,77 @@ public class Nibble62Disk525Codec implements NibbleDiskCodec {
     @Override
     public DataBuffer decode(DataBuffer rawData) {
         assert(rawData.limit() == RAW_BUFFER_SIZE+1);   // includes checksum
-        // Translate data field and check the checksum
-        DataBuffer buffer = DataBuffer.create(RAW_BUFFER_SIZE);
+        byte[] sectorData = new byte[SECTOR_SIZE];
+        if (!decode(rawData.asBytes(), 0, sectorData, 0)) {
+            return null;    // BAD DATA -- FIXME when logging is enabled
+        }
+        return DataBuffer.wrap(sectorData);
+    }
+
+    /**
+     * Each disk byte is the XOR of two consecutive 6-bit values, so the value at any position is the
+     * running XOR of the translated disk bytes. The first 86 values hold the low 2 bits (reversed) of
+     * three sector bytes each; the next 256 values hold the upper 6 bits. Because the running XOR of
+     * the entire field (with checksum) is zero, the values can also be recovered walking backwards.
+     * That lets the sector buffer hold the 86 "low bit" values while the sector is assembled from
+     * the end, without any scratch buffer.
+     */
+    @Override
+    public boolean decode(byte[] track, int offset, byte[] sector, int sectorOffset) {
         int checksum = 0;
-        for (int i=0; i<RAW_BUFFER_SIZE; i++) {
-            int b = rawData.getUnsignedByte(i);
-            checksum ^= readTranslateTable62[b];		// XOR
-            if (i < 86) {
-                buffer.putByte(RAW_BUFFER_SIZE - i - 1, checksum);
-            } else {
-                buffer.putByte(i - 86, checksum);
-            }
+        for (int i=0; i<=RAW_BUFFER_SIZE; i++) {
+            checksum ^= readTranslateTable62[track[wrap(track, offset + i)] & 0xff];
+        }
+        if (checksum != 0) return false;
+        // Low bits, in the first 86 bytes of the sector buffer
+        int value = 0;
+        for (int i=0; i<LOW_BITS_SIZE; i++) {
+            value ^= readTranslateTable62[track[wrap(track, offset + i)] & 0xff];
+            sector[sectorOffset + i] = (byte) value;
         }
-        checksum ^= readTranslateTable62[rawData.getUnsignedByte(RAW_BUFFER_SIZE)];
-        if (checksum != 0) return null;	// BAD DATA -- FIXME when logging is enabled
-        // Decode data field
-        DataBuffer sectorData = DataBuffer.create(SECTOR_SIZE);
-        final int[] reverseValues = { 0x0, 0x2, 0x1, 0x3 };
-        for (int i=0; i<sectorData.limit(); i++) {
-            int b1 = buffer.getUnsignedByte(i);
-            int lowerBits = RAW_BUFFER_SIZE - (i % 86) - 1;
-            int b2 = buffer.getUnsignedByte(lowerBits);
-            int shiftPairs = (i / 86) * 2;
-            // shift b1 up by 2 bytes (contains bits 7-2)
-            // align 2 bits in b2 appropriately, mask off anything but
-            // bits 0 and 1 and then REVERSE THEM...
-            sectorData.writeByte((b1 << 2) | reverseValues[(b2 >> shiftPairs) & 0x03]);
+        // Upper 6 bits, walking backwards from the checksum byte
+        value = readTranslateTable62[track[wrap(track, offset + RAW_BUFFER_SIZE)] & 0xff];
+        for (int i=SECTOR_SIZE-1; i>=0; i--) {
+            int lowBits = sector[sectorOffset + (i % LOW_BITS_SIZE)] & 0xff;
+            sector[sectorOffset + i] = (byte) (value << 2 | lowBitsTable[(i / LOW_BITS_SIZE) << 6 | lowBits]);
+            value ^= readTranslateTable62[track[wrap(track, offset + LOW_BITS_SIZE + i)] & 0xff];
         }
-        assert(sectorData.position() == SECTOR_SIZE);
-        return sectorData;
+        return true;
     }
 
     @Override
     public DataBuffer encode(DataBuffer data) {
         assert(data.limit() == SECTOR_SIZE);
-        // PRENIBBLE: This is Java translated from assembly @ $B800
-        //            The Java routine was not working...  :o(
-        int[] bb00 = new int[0x100];
-        int[] bc00 = new int[0x56];
-        int x = 0;
-        int y = 2;
-        while (true) {
-            y--;
-            if (y < 0) {
-                y+= 256;
-            }
-            int a = data.getUnsignedByte(y);
-            bc00[x]<<= 1;
-            bc00[x]|= a & 1;
-            a>>= 1;
-            bc00[x]<<= 1;
-            bc00[x]|= a & 1;
-            a>>= 1;
-            bb00[y] = a;
-            x++;
-            if (x >= 0x56) {
-                x = 0;
-                if (y == 0) break;	// done
-            }
-        }
-        for (x=0; x<0x56; x++) {
-            bc00[x]&= 0x3f;
-        }
+        byte[] diskData = new byte[RAW_BUFFER_SIZE+1];
+        encode(data.asBytes(), 0, diskData, 0);
+        return DataBuffer.wrap(diskData);
+    }
 
-        // 4. Translated from portions of WRITE at $B82A:
-        DataBuffer diskData = DataBuffer.create(RAW_BUFFER_SIZE+1);
-        for (y=0x56; y>0; y--) {
-            if (y == 0x56) {
-                diskData.writeByte(writeTranslateTable62[bc00[y-1]]);
-            } else {
-                diskData.writeByte(writeTranslateTable62[bc00[y] ^ bc00[y-1]]);
-            }
+    /**
+     * This is the PRENIBBLE routine (@ $B800) and WRITE (@ $B82A) folded together; each 6-bit value
+     * is computed as it is needed. Low bit value {@code i} carries the reversed low 2 bits of sector
+     * bytes {@code i}, {@code i+86} and {@code i+172} (the last wrapping around for the final two).
+     */
+    @Override
+    public void encode(byte[] sector, int sectorOffset, byte[] track, int offset) {
+        int previous = 0;
+        for (int i=0; i<LOW_BITS_SIZE; i++) {
+            int value = (REVERSE[sector[sectorOffset + i] & 0x03]
+                    | REVERSE[sector[sectorOffset + i + LOW_BITS_SIZE] & 0x03] << 2
+                    | REVERSE[sector[sectorOffset + ((i + 2*LOW_BITS_SIZE) & 0xff)] & 0x03] << 4);
+            track[wrap(track, offset + i)] = (byte) writeTranslateTable62[value ^ previous];
+            previous = value;
         }
-        diskData.writeByte(writeTranslateTable62[bc00[0] ^ bb00[y]]);
-        for (y=1; y<256; y++) {
-            diskData.writeByte(writeTranslateTable62[bb00[y] ^ bb00[y-1]]);
+        for (int i=0; i<SECTOR_SIZE; i++) {
+            int value = (sector[sectorOffset + i] & 0xff) >> 2;
+            track[wrap(track, offset + LOW_BITS_SIZE + i)] = (byte) writeTranslateTable62[value ^ previous];
+            previous = value;
         }
-        diskData.writeByte(writeTranslateTable62[bb00[255]]);
-        assert(diskData.position() == RAW_BUFFER_SIZE+1);
-        return diskData;
+        track[wrap(track, offset + RAW_BUFFER_SIZE)] = (byte) writeTranslateTable62[previous];
+    }
+
+    /** Wrap a position around the end of the (circular) track. */
+    private static int wrap(byte[] track, int position) {
+        return position < track.length ? position : position - track.length;
     }
 }
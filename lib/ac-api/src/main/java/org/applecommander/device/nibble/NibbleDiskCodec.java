@@ -27,6 +27,18 @@ public interface NibbleDiskCodec extends CapabilityProvider {
     int decodedSize();
     DataBuffer decode(DataBuffer rawData);
     DataBuffer encode(DataBuffer data);
+    /**
+     * Decode the data field (including the trailing checksum byte) that starts at {@code offset} in the
+     * nibble track, placing {@link #decodedSize()} bytes into {@code sector} at {@code sectorOffset}.
+     * The track is treated as circular, so the field may wrap around the end. Nothing is allocated.
+     * @return false if the checksum does not match (the sector contents are then undefined)
+     */
+    boolean decode(byte[] track, int offset, byte[] sector, int sectorOffset);
+    /**
+     * Encode {@link #decodedSize()} bytes from {@code sector} into the nibble track at {@code offset},
+     * including the checksum byte. The track is treated as circular. Nothing is allocated.
+     */
+    void encode(byte[] sector, int sectorOffset, byte[] track, int offset);
     int[] readTranslateTable();
     int[] writeTranslateTable();
 }
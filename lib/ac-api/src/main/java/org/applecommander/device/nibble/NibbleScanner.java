@@ -22,8 +22,7 @@ package org.applecommander.device.nibble;
 import org.applecommander.util.DataBuffer;
 
 import java.util.*;
-
-import static org.applecommander.device.nibble.NibbleUtil.decodeOddEven;
+import java.util.stream.IntStream;
 
 /**
  * Scan a nibble disk and try to identify the formatting. Note that this is really only good for
@@ -42,48 +41,35 @@ public class NibbleScanner {
     public static Optional<DiskMarker[]> identify(NibbleTrackReaderWriter trackReaderWriter) {
         final int tracksOnDevice = trackReaderWriter.getTracksOnDevice();
 
+        // Tracks are independent, so analyze them concurrently...
+        List<TrackAnalysis> analyses = IntStream.range(0, tracksOnDevice)
+                .parallel()
+                .mapToObj(track -> analyze(track, trackReaderWriter.readTrackData(track).asBytes()))
+                .toList();
+
+        // ... and then assemble the results in track order
         DiskMarker[] diskMarkers = new DiskMarker[tracksOnDevice];
         int successCount = 0;
         for (int track=0; track<tracksOnDevice; track++) {
-            DataBuffer trackData = trackReaderWriter.readTrackData(track);
-            // Generate a list of likely address prologs (that meet the expected 4&4 encodings and structure)
-            Map<Integer, Set<Integer>> addressPrologs = findAddressPrologs(track, trackData);
-            final int foundSectors = addressPrologs.values().stream().map(Collection::size).max(Integer::compareTo).orElseThrow();
-            // Assumption: Track is "mostly" normal, so 5&3 or 6&2 along with expected 13- and 16-sector sizing:
-            // (except for track 0 since it's possibly a mix of "expected" prolog and protected prolog bytes)
-            final int sectorsOnTrack;
-            if (foundSectors >= 10 && foundSectors <= 13) {
-                sectorsOnTrack = 13;
-            }
-            else if (foundSectors > 13 && foundSectors <= 16) {
-                sectorsOnTrack = 16;
-            }
-            else {
+            TrackAnalysis analysis = analyses.get(track);
+            if (analysis.sectorsOnTrack() == 0) {
                 // Expecting same sector count -- fill in DiskMarker just for sanity
                 diskMarkers[track] = DiskMarker.disk525sector13();
                 break;
             }
-            // Find the one that matches our expected sectors per track and then capture possible address prolog bytes:
-            final int addressProlog = addressPrologs.entrySet().stream()
-                    .filter(e -> e.getValue().size() == foundSectors)
-                    .map(Map.Entry::getKey)
-                    .findFirst().orElseThrow();
-            // Scan from an address prolog, look for (self?) sync bytes, and then assume next 3 are data prolog
-            NibbleDiskCodec nibbleDiskCodec = foundSectors == 13 ? new Nibble53Disk525Codec() : new Nibble62Disk525Codec();
-            int dataProlog = findDataProlog(addressProlog, trackData, nibbleDiskCodec);
             // Save (always, prevent easy NPE's in other code)
-            final int addr1 = (addressProlog >> 16) & 0xff;
-            final int addr2 = (addressProlog >> 8) & 0xff;
-            final int addr3 = addressProlog & 0xff;
-            final int data1 = (dataProlog >> 16) & 0xff;
-            final int data2 = (dataProlog >> 8) & 0xff;
-            final int data3 = dataProlog & 0xff;
-            diskMarkers[track] = DiskMarker.build(sectorsOnTrack)
+            final int addr1 = (analysis.addressProlog() >> 16) & 0xff;
+            final int addr2 = (analysis.addressProlog() >> 8) & 0xff;
+            final int addr3 = analysis.addressProlog() & 0xff;
+            final int data1 = (analysis.dataProlog() >> 16) & 0xff;
+            final int data2 = (analysis.dataProlog() >> 8) & 0xff;
+            final int data3 = analysis.dataProlog() & 0xff;
+            diskMarkers[track] = DiskMarker.build(analysis.sectorsOnTrack())
                     .addressProlog(addr1, addr2, addr3).addressEpilog()
                     .dataProlog(data1, data2, data3).dataEpilog()
                     .get();
             // Only tally good ones
-            if (dataProlog != 0) {
+            if (analysis.dataProlog() != 0) {
                 successCount++;
             }
         }
@@ -91,6 +77,38 @@ public class NibbleScanner {
         return successCount > 5 ? Optional.of(diskMarkers) : Optional.empty();
     }
 
+    /**
+     * Analyze a single track. When the sector count does not look like a 13- or 16-sector track,
+     * {@code sectorsOnTrack} is 0.
+     */
+    static TrackAnalysis analyze(int track, byte[] trackData) {
+        // Generate a list of likely address prologs (that meet the expected 4&4 encodings and structure)
+        AddressPrologs addressPrologs = findAddressPrologs(track, trackData);
+        final int foundSectors = addressPrologs.maxSectors();
+        // Assumption: Track is "mostly" normal, so 5&3 or 6&2 along with expected 13- and 16-sector sizing:
+        // (except for track 0 since it's possibly a mix of "expected" prolog and protected prolog bytes)
+        final int sectorsOnTrack;
+        if (foundSectors >= 10 && foundSectors <= 13) {
+            sectorsOnTrack = 13;
+        }
+        else if (foundSectors > 13 && foundSectors <= 16) {
+            sectorsOnTrack = 16;
+        }
+        else {
+            return new TrackAnalysis(0, 0, 0);
+        }
+        // Find the one that matches our expected sectors per track and then capture possible address prolog bytes:
+        final int addressProlog = addressPrologs.firstWith(foundSectors);
+        // Scan from an address prolog, look for (self?) sync bytes, and then assume next 3 are data prolog
+        NibbleDiskCodec nibbleDiskCodec = foundSectors == 13 ? NIBBLE_53 : NIBBLE_62;
+        int dataProlog = findDataProlog(addressProlog, trackData, nibbleDiskCodec);
+        return new TrackAnalysis(sectorsOnTrack, addressProlog, dataProlog);
+    }
+    record TrackAnalysis(int sectorsOnTrack, int addressProlog, int dataProlog) {}
+
+    private static final NibbleDiskCodec NIBBLE_53 = new Nibble53Disk525Codec();
+    private static final NibbleDiskCodec NIBBLE_62 = new Nibble62Disk525Codec();
+
     /**
      * Look for likely address prologs on disk. Returns raw results in case there is more than one
      * possibility and to identify likely sectors per track.
@@ -100,50 +118,109 @@ public class NibbleScanner {
      * and checksum.
      */
     public static Map<Integer,Set<Integer>> findAddressPrologs(int track, DataBuffer trackData) {
-        Map<Integer, Set<Integer>> addressPrologs = new HashMap<>();
+        AddressPrologs addressPrologs = findAddressPrologs(track, trackData.asBytes());
+        Map<Integer, Set<Integer>> results = new LinkedHashMap<>();
+        for (int i = 0; i < addressPrologs.count; i++) {
+            Set<Integer> sectors = new TreeSet<>();
+            for (int sector = 0; sector < 16; sector++) {
+                if ((addressPrologs.sectorMasks[i] & (1 << sector)) != 0) sectors.add(sector);
+            }
+            results.put(addressPrologs.prologs[i], sectors);
+        }
+        return results;
+    }
+
+    /**
+     * Primitive version of {@link #findAddressPrologs(int, DataBuffer)}. Sectors are tracked as a bitmask
+     * per prolog (sector numbers are limited to 0-15), and prologs are kept in the order first seen.
+     */
+    static AddressPrologs findAddressPrologs(int track, byte[] trackData) {
+        AddressPrologs addressPrologs = new AddressPrologs();
         final int headerLength = 14;
-        final int trackLength = trackData.limit();
+        final int trackLength = trackData.length;
         for (int i = 5; i < trackLength + headerLength; i++) {
-            int trk = decodeOddEven(trackData, i % trackLength);
+            int trk = decodeOddEven(trackData, i, trackLength);
             if (trk == track) {
-                int sct = decodeOddEven(trackData, (i + 2) % trackLength);
+                int sct = decodeOddEven(trackData, i + 2, trackLength);
                 if (sct < 16) { // likely sector number range
-                    DataBuffer header = DataBuffer.create(headerLength);
-                    for (int j = 0; j < headerLength; j++) {    // allow wrap to occur
-                        header.putByte(j, trackData.getUnsignedByte((i - 5 + j) % trackLength));
-                    }
-                    int prolog = header.getUnsignedByte(0) << 16 | header.getUnsignedByte(1) << 8
-                            | header.getUnsignedByte(2);
-                    addressPrologs.merge(prolog, new TreeSet<>(Set.of(sct)), (l, n) -> {
-                        l.addAll(n);
-                        return l;
-                    });
+                    // allow wrap to occur
+                    int prolog = (trackData[(i - 5) % trackLength] & 0xff) << 16
+                            | (trackData[(i - 4) % trackLength] & 0xff) << 8
+                            | (trackData[(i - 3) % trackLength] & 0xff);
+                    addressPrologs.add(prolog, sct);
                 }
             }
         }
         return addressPrologs;
     }
 
+    /** Same as {@link NibbleUtil#decodeOddEven(DataBuffer, int)} but operating on the raw track bytes. */
+    private static int decodeOddEven(byte[] trackData, int offset, int trackLength) {
+        int b1 = trackData[offset % trackLength] & 0xff;
+        int b2 = trackData[(offset + 1) % trackLength] & 0xff;
+        return (b1 << 1 | 0x01) & b2;
+    }
+
+    /** Candidate address prologs (as 24-bit values) along with a bitmask of the sectors seen for each. */
+    static class AddressPrologs {
+        private int[] prologs = new int[16];
+        private int[] sectorMasks = new int[16];
+        private int count;
+
+        void add(int prolog, int sector) {
+            for (int i = 0; i < count; i++) {
+                if (prologs[i] == prolog) {
+                    sectorMasks[i] |= 1 << sector;
+                    return;
+                }
+            }
+            if (count == prologs.length) {
+                prologs = Arrays.copyOf(prologs, count * 2);
+                sectorMasks = Arrays.copyOf(sectorMasks, count * 2);
+            }
+            prologs[count] = prolog;
+            sectorMasks[count] = 1 << sector;
+            count++;
+        }
+        int maxSectors() {
+            int max = 0;
+            for (int i = 0; i < count; i++) {
+                max = Math.max(max, Integer.bitCount(sectorMasks[i]));
+            }
+            return max;
+        }
+        int firstWith(int sectors) {
+            for (int i = 0; i < count; i++) {
+                if (Integer.bitCount(sectorMasks[i]) == sectors) return prologs[i];
+            }
+            throw new NoSuchElementException();
+        }
+    }
+
     /**
      * Scan from an address prolog, look for sync bytes, and then assume next 3 are data prolog.
      * Note that this makes a bunch of assumptions!
      */
     public static int findDataProlog(int addressProlog, DataBuffer trackData, NibbleDiskCodec nibbleDiskCodec) {
-        final int trackLength = trackData.limit();
+        return findDataProlog(addressProlog, trackData.asBytes(), nibbleDiskCodec);
+    }
+
+    static int findDataProlog(int addressProlog, byte[] trackData, NibbleDiskCodec nibbleDiskCodec) {
+        final int trackLength = trackData.length;
         final int addr1 = (addressProlog >> 16) & 0xff;
         final int addr2 = (addressProlog >> 8) & 0xff;
         final int addr3 = addressProlog & 0xff;
         int pos = 0;
         int[] readTranslateTable = nibbleDiskCodec.readTranslateTable();
         while (pos < trackLength+40) {
-            if (trackData.getUnsignedByte(pos % trackLength) == addr1
-                    && trackData.getUnsignedByte((pos+1) % trackLength) == addr2
-                    && trackData.getUnsignedByte((pos+2) % trackLength) == addr3) {
+            if ((trackData[pos % trackLength] & 0xff) == addr1
+                    && (trackData[(pos+1) % trackLength] & 0xff) == addr2
+                    && (trackData[(pos+2) % trackLength] & 0xff) == addr3) {
                 pos = pos + 3 + 8 + 2;  // prolog(3) + address field(8) + epilog(2)
                 int syncByte = 0;       // the sync byte is not always 0xff... trying to be somewhat lenient
                 int syncCount = 0;
                 for (int i=pos; i<pos+40; i++) {
-                    int b = trackData.getUnsignedByte(i % trackLength);
+                    int b = trackData[i % trackLength] & 0xff;
                     if (b == syncByte) {
                         syncCount++;
                     }
@@ -153,14 +230,14 @@ public class NibbleScanner {
                         int checksum = 0;
                         for (int j=0; j<nibbleDiskCodec.encodedSize()+1; j++) {
                             // we need to look past the 3 data prolog bytes
-                            int b2 = trackData.getUnsignedByte((i+3+j) % trackLength);
+                            int b2 = trackData[(i+3+j) % trackLength] & 0xff;
                             checksum ^= readTranslateTable[b2];     // XOR
                         }
                         if (checksum == 0) {
                             // Only keep it if the checksum matched
-                            int data1 = trackData.getUnsignedByte(i % trackLength);
-                            int data2 = trackData.getUnsignedByte((i + 1) % trackLength);
-                            int data3 = trackData.getUnsignedByte((i + 2) % trackLength);
+                            int data1 = trackData[i % trackLength] & 0xff;
+                            int data2 = trackData[(i + 1) % trackLength] & 0xff;
+                            int data3 = trackData[(i + 2) % trackLength] & 0xff;
                             return data1 << 16 | data2 << 8 | data3;
                         }
                         else {
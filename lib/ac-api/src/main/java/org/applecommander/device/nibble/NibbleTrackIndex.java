@@ -0,0 +1,154 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device.nibble;
+
+import org.applecommander.util.DataBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Index of the sectors on a nibble track. The track is swept once, capturing every address
+ * field (for this track) and every data prolog; each address field is then paired with the next
+ * data prolog that follows it. Because the track is circular, a field may wrap around the end of
+ * the track buffer.
+ * <p/>
+ * The result is a simple sector number to offset mapping. Offsets point to the first byte
+ * <em>after</em> the prolog bytes, and are -1 when the sector was not found.
+ */
+public class NibbleTrackIndex {
+    /**
+     * This is the "data" component of the address field: 2 x (Volume, Track, Sector, Checksum).
+     */
+    private static final int ADDRESS_FIELD_SIZE = 8;
+
+    private final int[] addressFieldOffsets;
+    private final int[] dataFieldOffsets;
+
+    private NibbleTrackIndex(int[] addressFieldOffsets, int[] dataFieldOffsets) {
+        this.addressFieldOffsets = addressFieldOffsets;
+        this.dataFieldOffsets = dataFieldOffsets;
+    }
+
+    /**
+     * Build the index for the given track. Only address fields for the expected track and with a sector
+     * number in range of the DiskMarker are indexed. If a sector appears more than once, the first
+     * occurrence wins.
+     */
+    public static NibbleTrackIndex index(DataBuffer trackData, int track, DiskMarker diskMarker) {
+        return index(trackData.asBytes(), track, diskMarker);
+    }
+    /** Build the index directly from the raw track bytes. */
+    public static NibbleTrackIndex index(byte[] data, int track, DiskMarker diskMarker) {
+        final int length = data.length;
+        final int[] addressProlog = diskMarker.addressProlog();
+        final int[] dataProlog = diskMarker.dataProlog();
+        final int sectorsOnTrack = diskMarker.sectorsOnTrack();
+
+        int[] addressFieldOffsets = new int[sectorsOnTrack];
+        int[] dataFieldOffsets = new int[sectorsOnTrack];
+        Arrays.fill(addressFieldOffsets, -1);
+        Arrays.fill(dataFieldOffsets, -1);
+        if (length == 0) {
+            return new NibbleTrackIndex(addressFieldOffsets, dataFieldOffsets);
+        }
+
+        // Single sweep: capture address fields (sector + end of field) and all data prologs, in track order.
+        int[] addressSectors = new int[sectorsOnTrack];
+        int[] addressEnds = new int[sectorsOnTrack];
+        int addressCount = 0;
+        int[] dataStarts = new int[32];
+        int dataCount = 0;
+        for (int i = 0; i < length; i++) {
+            if (matches(data, i, addressProlog)) {
+                int field = i + addressProlog.length;
+                int t = decodeOddEven(data, field + 2);
+                int s = decodeOddEven(data, field + 4);
+                if (t == track && s < sectorsOnTrack && addressFieldOffsets[s] == -1) {
+                    addressFieldOffsets[s] = field % length;
+                    addressSectors[addressCount] = s;
+                    addressEnds[addressCount] = field + ADDRESS_FIELD_SIZE;
+                    addressCount++;
+                }
+            }
+            if (matches(data, i, dataProlog)) {
+                if (dataCount == dataStarts.length) {
+                    dataStarts = Arrays.copyOf(dataStarts, dataCount * 2);
+                }
+                dataStarts[dataCount++] = i + dataProlog.length;
+            }
+        }
+
+        // Pair each address field with the next data prolog (wrapping around to the start of the track).
+        if (dataCount > 0) {
+            int d = 0;
+            for (int a = 0; a < addressCount; a++) {
+                int addressEnd = addressEnds[a];
+                // Note that a data prolog _starting_ inside the address field is not accepted
+                while (d < dataCount && dataStarts[d] - dataProlog.length < addressEnd) {
+                    d++;
+                }
+                int dataStart = (d < dataCount) ? dataStarts[d] : dataStarts[0] + length;
+                if (dataStart - dataProlog.length < addressEnd) {
+                    // Only possible when wrapping; every data prolog is before this address field
+                    continue;
+                }
+                dataFieldOffsets[addressSectors[a]] = dataStart % length;
+            }
+        }
+        return new NibbleTrackIndex(addressFieldOffsets, dataFieldOffsets);
+    }
+
+    private static boolean matches(byte[] data, int offset, int[] prolog) {
+        final int length = data.length;
+        for (int j = 0; j < prolog.length; j++) {
+            if ((data[(offset + j) % length] & 0xff) != prolog[j]) {
+                return false;
+            }
+        }
+        return prolog.length > 0;
+    }
+
+    /** Same as {@link NibbleUtil#decodeOddEven(DataBuffer, int)} but operating on the raw track bytes. */
+    private static int decodeOddEven(byte[] data, int offset) {
+        final int length = data.length;
+        int b1 = data[offset % length] & 0xff;
+        int b2 = data[(offset + 1) % length] & 0xff;
+        return (b1 << 1 | 0x01) & b2;
+    }
+
+    /** Number of sectors that have both an address field and a data field. */
+    public int sectorsFound() {
+        int count = 0;
+        for (int offset : dataFieldOffsets) {
+            if (offset != -1) count++;
+        }
+        return count;
+    }
+
+    /** Offset of the address field data (just past the prolog) or -1 if not found. */
+    public int addressFieldOffset(int sector) {
+        return sector >= 0 && sector < addressFieldOffsets.length ? addressFieldOffsets[sector] : -1;
+    }
+
+    /** Offset of the data field (just past the prolog) or -1 if not found. */
+    public int dataFieldOffset(int sector) {
+        return sector >= 0 && sector < dataFieldOffsets.length ? dataFieldOffsets[sector] : -1;
+    }
+}
@@ -24,13 +24,14 @@ import org.applecommander.device.nibble.NibbleTrackReaderWriter;
 import org.applecommander.source.Source;
 import org.applecommander.util.Container;
 import org.applecommander.util.DataBuffer;
+import org.applecommander.util.WriteBack;
 
-import java.io.ByteArrayOutputStream;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.zip.CRC32;
 
-public class WozImage implements NibbleTrackReaderWriter {
+public class WozImage implements NibbleTrackReaderWriter, WriteBack {
     // The magic bytes are read in little-endian order, so they do appear reversed here.
     public static final int WOZ1_MAGIC = 0x315a4f57;
     public static final int WOZ2_MAGIC = 0x325a4f57;
@@ -50,6 +51,15 @@ public class WozImage implements NibbleTrackReaderWriter {
 
     // Internal configuration settings
     private Function<Integer,DataBuffer> trackReader = null;
+    private boolean woz2;
+    private int trksChunkOffset = -1;
+    // Tracks (same indexing as decodedTracks) that have been written but not yet re-encoded into the image
+    private final BitSet dirtyTracks = new BitSet();
+    // Decoded tracks; indexed by TRKS entry (WOZ2) or track (WOZ1) -- the TMAP may point several quarter-tracks at one
+    private final DataBuffer[] decodedTracks = new DataBuffer[160];
+    // Scratch space for the bitstream transform, reused (and grown as needed) across tracks
+    private long[] bitstreamWords = new long[0];
+    private byte[] nibbleBuffer = new byte[0];
 
     public WozImage(Source source) {
         this.source = source;
@@ -65,6 +75,7 @@ public class WozImage implements NibbleTrackReaderWriter {
         }
         else if (sig == WOZ2_MAGIC && test == testExpected) {
             this.trackReader = this::readTrackDataWOZ2;
+            this.woz2 = true;
         }
         else {
             throw new RuntimeException("Not a WOZ1 or WOZ2 format file.");
@@ -95,6 +106,7 @@ public class WozImage implements NibbleTrackReaderWriter {
                     }
                     break;
                 case TRKS_CHUNK_ID:
+                    this.trksChunkOffset = bb.position() - chunkSize;
                     readTrksChunk(data);
                     break;
                 case META_CHUNK_ID:
@@ -111,8 +123,7 @@ public class WozImage implements NibbleTrackReaderWriter {
 
     @Override
     public boolean can(Capability capability) {
-        // No track writing with WOZ images
-        return false;
+        return capability == Capability.WRITE_TRACK;
     }
 
     @Override
@@ -120,35 +131,112 @@ public class WozImage implements NibbleTrackReaderWriter {
         return tmap.size();
     }
 
+    /**
+     * Read the nibbles for the given track. Note that the decoded track is memoized and the same buffer is
+     * returned on subsequent reads.
+     */
     @Override
-    public DataBuffer readTrackData(int track) {
+    public synchronized DataBuffer readTrackData(int track) {
         return this.trackReader.apply(track);
     }
 
+    /**
+     * Write nibbilized track data. The track is only re-encoded into the bitstream when the image
+     * is flushed; until then, the nibbles are held (and returned by readTrackData).
+     */
     @Override
-    public void writeTrackData(int track, DataBuffer data) {
+    public synchronized void writeTrackData(int track, DataBuffer data) {
+        int index = woz2 ? findTrkInfo(track) : track;
+        if (index == 255) {
+            throw new RuntimeException(String.format("track %d has no track data in WOZ image", track));
+        }
+        decodedTracks[index] = DataBuffer.wrap(data.asBytes());
+        dirtyTracks.set(index);
+    }
 
+    @Override
+    public synchronized boolean hasPendingChanges() {
+        return !dirtyTracks.isEmpty();
     }
 
-    public DataBuffer readTrackDataWOZ2(int track) {
+    /**
+     * Re-encode all modified tracks into the bitstream, update the bit counts, and then
+     * recompute the CRC32 for the image.
+     */
+    @Override
+    public synchronized void flush() {
+        if (dirtyTracks.isEmpty()) {
+            return;
+        }
+        for (int index = dirtyTracks.nextSetBit(0); index >= 0; index = dirtyTracks.nextSetBit(index+1)) {
+            if (woz2) {
+                TrkInfo trk = trks.get(index);
+                byte[] bitstream = new byte[trk.getBlockCount()*512];
+                int bitCount = encodeBitstream(decodedTracks[index], bitstream);
+                source.writeBytes(trk.getStartingBlock()*512, DataBuffer.wrap(bitstream));
+                DataBuffer bitCountData = DataBuffer.create(4);
+                bitCountData.putUnsignedShort(0, bitCount & 0xffff);
+                bitCountData.putUnsignedShort(2, bitCount >>> 16);
+                source.writeBytes(trksChunkOffset + index*8 + 4, bitCountData);
+                trks.set(index, new TrkInfo(trk.getStartingBlock(), trk.getBlockCount(), bitCount));
+            }
+            else {
+                final int trackLength = 6656;
+                int start = 256 + (index * trackLength);
+                byte[] bitstream = new byte[6646];
+                int bitCount = encodeBitstream(decodedTracks[index], bitstream);
+                source.writeBytes(start, DataBuffer.wrap(bitstream));
+                DataBuffer details = DataBuffer.create(4);
+                details.putUnsignedShort(0, (bitCount + 7) / 8);
+                details.putUnsignedShort(2, bitCount);
+                source.writeBytes(start + 6646, details);
+            }
+        }
+        dirtyTracks.clear();
+        // The CRC covers everything following the CRC itself
+        CRC32 crc32 = new CRC32();
+        crc32.update(source.readBytes(12, source.getSize()-12).asBytes());
+        DataBuffer crc = DataBuffer.create(4);
+        crc.putUnsignedShort(0, (int)(crc32.getValue() & 0xffff));
+        crc.putUnsignedShort(2, (int)(crc32.getValue() >>> 16));
+        source.writeBytes(8, crc);
+    }
+
+    /**
+     * Locate the TRKS entry for the given track. Note that the TMAP is by quarter-track, so we use the
+     * first quarter-track that is mapped.
+     */
+    private int findTrkInfo(int track) {
         TmapChunk map = tmap.get(track);
         int trkInfo = 255;
         for (int i=0; i<4 && trkInfo == 255; i++) {
             trkInfo = map.getOffset(i);
         }
+        return trkInfo;
+    }
+
+    public DataBuffer readTrackDataWOZ2(int track) {
+        int trkInfo = findTrkInfo(track);
         TrkInfo trk = trks.get(trkInfo);
-        DataBuffer rawData = source.readBytes(trk.getStartingBlock()*512, trk.getBlockCount()*512);
-        return transformBitstream(rawData, trk.getBitCount());
+        if (decodedTracks[trkInfo] == null) {
+            DataBuffer rawData = source.readBytes(trk.getStartingBlock()*512, trk.getBlockCount()*512);
+            decodedTracks[trkInfo] = transformBitstream(rawData, trk.getBitCount());
+        }
+        return decodedTracks[trkInfo];
     }
 
     public DataBuffer readTrackDataWOZ1(int track) {
+        if (decodedTracks[track] != null) {
+            return decodedTracks[track];
+        }
         final int trackLength = 6656;
         int start = 256 + (track * trackLength);
         DataBuffer details = source.readBytes(start + 6646, 10);
         int bytesUsed = details.getUnsignedShort(0);
         int bitCount = details.getUnsignedShort(2);
         DataBuffer rawData = source.readBytes(start, bytesUsed);
-        return transformBitstream(rawData, bitCount);
+        decodedTracks[track] = transformBitstream(rawData, bitCount);
+        return decodedTracks[track];
     }
 
     public void readMetaChunk(DataBuffer data) {
@@ -184,30 +272,93 @@ public class WozImage implements NibbleTrackReaderWriter {
         }
     }
 
+    /**
+     * Transform the raw bitstream into nibbles. The Disk II controller shifts bits in until the high bit
+     * is set, which means zero bits are skipped until a one bit is found and that one bit plus the next
+     * 7 bits are the nibble. This lets us work a word at a time: skip runs of zeros with
+     * {@link Long#numberOfLeadingZeros(long)} and then pull the 8 bits as a unit.
+     */
     public DataBuffer transformBitstream(DataBuffer rawData, int bitCount) {
         // NOTE: Uncertain if we need to track 0's (only 2 allowed by hardware) or not.
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        int bitNo = 7;
-        int byteNo = 0;
-        int byteVal = 0;
-        while (bitCount > 0) {
-            bitCount--;
-            byteVal <<= 1;
-            if (rawData.isBitSet(byteNo, bitNo)) {
-                byteVal |= 1;
+        bitCount = Math.min(bitCount, rawData.limit() * 8);
+        final int wordCount = (bitCount + 63) / 64 + 1;    // +1 allows a nibble to straddle the last word
+        if (bitstreamWords.length < wordCount) {
+            bitstreamWords = new long[wordCount];
+        }
+        if (nibbleBuffer.length < bitCount / 8) {
+            nibbleBuffer = new byte[bitCount / 8];
+        }
+        final long[] words = bitstreamWords;
+        final int byteCount = (bitCount + 7) / 8;
+        for (int w = 0; w < wordCount; w++) {
+            long word = 0;
+            for (int b = 0; b < 8; b++) {
+                int index = w * 8 + b;
+                word = (word << 8) | (index < byteCount ? rawData.getUnsignedByte(index) : 0);
+            }
+            words[w] = word;
+        }
+
+        int count = 0;
+        int bitNo = 0;
+        while (bitNo < bitCount) {
+            // Skip zero bits
+            long word = words[bitNo >>> 6] << (bitNo & 63);
+            if (word == 0) {
+                bitNo = ((bitNo >>> 6) + 1) << 6;
+                continue;
             }
-            bitNo--;
-            if (bitNo < 0) {
-                bitNo = 7;
-                byteNo++;
+            bitNo += Long.numberOfLeadingZeros(word);
+            if (bitNo + 8 > bitCount) {
+                break;      // partial nibble at end of track
             }
-            if (byteVal >= 128) {
-                baos.write(byteVal);
-                byteVal = 0;
+            // Extract 8 bits, which may span two words
+            int offset = bitNo & 63;
+            long bits = words[bitNo >>> 6] << offset;
+            if (offset > 56) {
+                bits |= words[(bitNo >>> 6) + 1] >>> (64 - offset);
             }
+            nibbleBuffer[count++] = (byte)(bits >>> 56);
+            bitNo += 8;
         }
-        return DataBuffer.wrap(baos.toByteArray());
+        return DataBuffer.wrap(Arrays.copyOf(nibbleBuffer, count));
+    }
 
+    /**
+     * Transform nibbles back into a bitstream; this is the reverse of {@link #transformBitstream(DataBuffer, int)}.
+     * If there is room in the target, a run of sync bytes (0xff) is written as 10-bit self-sync bytes (0xff
+     * followed by two zero bits) as the Disk II would write them. The target is expected to be zero filled.
+     * @return number of bits written
+     */
+    public int encodeBitstream(DataBuffer nibbles, byte[] target) {
+        final int count = nibbles.limit();
+        int syncBytes = 0;
+        for (int i=0; i<count-1; i++) {
+            if (nibbles.getUnsignedByte(i) == 0xff && nibbles.getUnsignedByte(i+1) == 0xff) {
+                syncBytes++;
+            }
+        }
+        final long capacity = target.length * 8L;
+        if (count * 8L > capacity) {
+            throw new RuntimeException(String.format("track of %d nibbles does not fit in %d bytes",
+                    count, target.length));
+        }
+        final boolean selfSync = count * 8L + syncBytes * 2L <= capacity;
+        int bitNo = 0;
+        for (int i=0; i<count; i++) {
+            int nibble = nibbles.getUnsignedByte(i);
+            // nibble is byte aligned only when bitNo is; otherwise it straddles two bytes
+            int shift = bitNo & 7;
+            target[bitNo >>> 3] |= (byte)(nibble >>> shift);
+            if (shift != 0) {
+                target[(bitNo >>> 3) + 1] |= (byte)(nibble << (8 - shift));
+            }
+            bitNo += 8;
+            if (selfSync && nibble == 0xff && i < count-1 && nibbles.getUnsignedByte(i+1) == 0xff) {
+                bitNo += 2;
+            }
+        }
+        return bitNo;
     }
 
     public static class InfoChunk {
@@ -327,6 +478,11 @@ public class WozImage implements NibbleTrackReaderWriter {
             this.blockCount = data.readUnsignedShort();
             this.bitCount = data.readInt();
         }
+        public TrkInfo(int startingBlock, int blockCount, int bitCount) {
+            this.startingBlock = startingBlock;
+            this.blockCount = blockCount;
+            this.bitCount = bitCount;
+        }
         public int getStartingBlock() {
             return startingBlock;
         }
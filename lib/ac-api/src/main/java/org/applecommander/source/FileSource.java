@@ -19,6 +19,7 @@
  */
 package org.applecommander.source;
 
+import com.webcodepro.applecommander.util.Host;
 import org.applecommander.capability.Capability;
 import org.applecommander.hint.Hint;
 import org.applecommander.util.Container;
@@ -134,13 +135,45 @@ public class FileSource implements Source {
         @Override
         public Optional<Source> fromObject(Object object) {
             return switch(object) {
-                case Path path -> Optional.of(new FileSource(path));
-                case File file -> Optional.of(new FileSource(file.toPath()));
-                case String filename -> Optional.of(new FileSource(Path.of(filename)));
+                case Path path -> Optional.of(create(path));
+                case File file -> Optional.of(create(file.toPath()));
+                case String filename -> Optional.of(create(Path.of(filename)));
                 default -> Optional.empty();
             };
         }
 
+        /**
+         * Compressed files are inflated on demand (see {@link GzipFileSource}) and large, uncompressed
+         * files are memory mapped (see {@link MappedFileSource#threshold()}). Windows does not allow a
+         * mapped file to be truncated or replaced, so mapping is skipped there.
+         */
+        private Source create(Path path) {
+            try {
+                if (Files.isRegularFile(path)) {
+                    if (isCompressed(path)) {
+                        // A damaged stream shows up here rather than part way through inspection
+                        GzipFileSource source = new GzipFileSource(path);
+                        source.inflateFirstWindow();
+                        return source;
+                    }
+                    long threshold = MappedFileSource.threshold();
+                    if (threshold >= 0 && !Host.isWindows() && Files.size(path) >= threshold) {
+                        return new MappedFileSource(path);
+                    }
+                }
+            } catch (IOException | UncheckedIOException ignored) {
+                // fall through and let FileSource sort it out (or report the problem)
+            }
+            return new FileSource(path);
+        }
+
+        private boolean isCompressed(Path path) throws IOException {
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                byte[] magic = inputStream.readNBytes(2);
+                return magic.length == 2 && DataBuffer.wrap(magic).getUnsignedShort(0) == GZIPInputStream.GZIP_MAGIC;
+            }
+        }
+
         @Override
         public Optional<Source> fromSource(Source source) {
             return Optional.empty();
@@ -0,0 +1,273 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.source;
+
+import org.applecommander.capability.Capability;
+import org.applecommander.hint.Hint;
+import org.applecommander.util.Container;
+import org.applecommander.util.DataBuffer;
+import org.applecommander.util.Information;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A Source for a gzip compressed file that inflates on demand. The image is inflated front to back,
+ * one window at a time, only as far as the highest offset that has been touched. Catalog and
+ * directory structures generally live at the front of an image, so listing a disk usually only
+ * inflates the first window or two.
+ * <p/>
+ * Each window is allocated as it is inflated and retained, so the inflater never has to be restarted
+ * from the beginning of the stream. Reads within a window are slices of that window; reads that span
+ * windows are copies. Once the whole image is requested, the windows are joined into a single buffer
+ * and everything after that slices it, just as with {@link FileSource}.
+ * <p/>
+ * The gzip trailer (ISIZE) is only used as a hint for {@link #getSize()}. A damaged file can claim
+ * any size, so the hint is ignored when deflate could not have produced it from the compressed
+ * data, and the real length wins once the stream has been inflated to its end. The trailer only
+ * gives the size of the last member, so the hint is also ignored when the file may hold more than
+ * one member; the stream is then inflated to its end to measure it, just as {@link FileSource} does.
+ */
+public class GzipFileSource implements Source {
+    public static final int WINDOW_SIZE = 64 * 1024;
+    /** Deflate cannot expand data by more than this factor. */
+    private static final int MAXIMUM_RATIO = 1032;
+
+    private final Path path;
+    private final String filename;
+    private final int compressedSize;
+    private final int sizeHint;
+    private InputStream inflater;
+    private final List<byte[]> windows = new ArrayList<>();
+    private byte[] data;
+    private int inflatedLength;
+    private boolean changed;
+
+    public GzipFileSource(Path path) {
+        this.path = path;
+        this.filename = path.toString();
+        try {
+            byte[] rawData = Files.readAllBytes(path);
+            this.compressedSize = rawData.length;
+            if (rawData.length < 18) {
+                throw new IOException("not a gzip file: " + filename);
+            }
+            // Reads (and validates) the gzip header but inflates nothing yet
+            this.inflater = new GZIPInputStream(new ByteArrayInputStream(rawData), WINDOW_SIZE);
+            long size = Integer.toUnsignedLong(DataBuffer.wrap(rawData).getInt(rawData.length - 4));
+            boolean plausible = size <= Math.min((long) compressedSize * MAXIMUM_RATIO, Integer.MAX_VALUE);
+            this.sizeHint = plausible && !hasLaterMember(rawData) ? (int) size : -1;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Indicates if a second gzip member may follow the first, in which case the trailer does not
+     * describe the whole stream. Every position after the first header that starts like a gzip
+     * header (as {@link GZIPInputStream} would accept it) is tried as the start of a member; deflate
+     * data can contain that sequence by chance, but then it almost never inflates cleanly.
+     */
+    static boolean hasLaterMember(byte[] rawData) {
+        for (int i = 10; i + 18 <= rawData.length; i++) {
+            if (rawData[i] != 0x1f || rawData[i+1] != (byte) 0x8b || rawData[i+2] != 8) continue;
+            try (InputStream member = new GZIPInputStream(new ByteArrayInputStream(rawData, i, rawData.length - i))) {
+                member.readNBytes(WINDOW_SIZE);
+                return true;
+            } catch (IOException ex) {
+                // not a member after all
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inflate the first window. The factory uses this to confirm the file really is gzip data
+     * before committing to it.
+     */
+    synchronized void inflateFirstWindow() {
+        inflateTo(1);
+    }
+
+    /**
+     * Inflate until at least {@code end} bytes are available (or the stream is exhausted).
+     */
+    private void inflateTo(long end) {
+        try {
+            while (inflater != null && inflatedLength < end) {
+                byte[] window = new byte[WINDOW_SIZE];
+                int n = inflater.readNBytes(window, 0, WINDOW_SIZE);
+                if (n > 0) {
+                    windows.add(n == WINDOW_SIZE ? window : Arrays.copyOf(window, n));
+                    inflatedLength += n;
+                }
+                if (n < WINDOW_SIZE) {
+                    inflater.close();
+                    inflater = null;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Inflate through {@code offset + length} and confirm the range exists.
+     */
+    private void prepare(int offset, int length) {
+        long end = (long) offset + length;
+        inflateTo(end);
+        if (offset < 0 || length < 0 || end > inflatedLength) {
+            throw new IndexOutOfBoundsException(String.format("offset %d, length %d, size %d",
+                    offset, length, inflatedLength));
+        }
+    }
+
+    /** The number of bytes that have been inflated so far. */
+    public synchronized int getInflatedLength() {
+        return inflatedLength;
+    }
+
+    @Override
+    public boolean can(Capability capability) {
+        return false;
+    }
+
+    @Override
+    public boolean is(Hint hint) {
+        return false;
+    }
+
+    @Override
+    public <T> Optional<T> get(Class<T> iface) {
+        // Only inflate everything when the backing buffer is actually requested
+        if (iface.isAssignableFrom(DataBuffer.class)) {
+            return Container.get(iface, readAllBytes());
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public synchronized int getSize() {
+        if (inflater != null && (sizeHint < 0 || sizeHint < inflatedLength)) {
+            // The trailer cannot be trusted, so the only way to know is to inflate it all
+            inflateTo(Integer.MAX_VALUE);
+        }
+        return inflater == null ? inflatedLength : sizeHint;
+    }
+
+    @Override
+    public String getName() {
+        return filename;
+    }
+
+    @Override
+    public synchronized DataBuffer readAllBytes() {
+        inflateTo(Integer.MAX_VALUE);
+        if (data == null) {
+            data = new byte[inflatedLength];
+            int offset = 0;
+            for (byte[] window : windows) {
+                System.arraycopy(window, 0, data, offset, window.length);
+                offset += window.length;
+            }
+            windows.clear();
+        }
+        return DataBuffer.wrap(data);
+    }
+
+    @Override
+    public synchronized DataBuffer readBytes(int offset, int length) {
+        prepare(offset, length);
+        if (data != null) {
+            return DataBuffer.wrap(data).slice(offset, length);
+        }
+        byte[] window = windows.get(offset / WINDOW_SIZE);
+        int windowOffset = offset % WINDOW_SIZE;
+        if (windowOffset + length <= window.length) {
+            return DataBuffer.wrap(window).slice(windowOffset, length);
+        }
+        byte[] copy = new byte[length];
+        transfer(offset, copy, false);
+        return DataBuffer.wrap(copy);
+    }
+
+    @Override
+    public synchronized void writeBytes(int offset, DataBuffer data) {
+        prepare(offset, data.limit());
+        if (this.data != null) {
+            DataBuffer.wrap(this.data).put(offset, data);
+        }
+        else {
+            byte[] bytes = new byte[data.limit()];
+            data.get(0, bytes);
+            transfer(offset, bytes, true);
+        }
+        changed = true;
+    }
+
+    /**
+     * Copy between the windows and {@code bytes}, starting at the image {@code offset}.
+     */
+    private void transfer(int offset, byte[] bytes, boolean toWindows) {
+        int done = 0;
+        while (done < bytes.length) {
+            byte[] window = windows.get((offset + done) / WINDOW_SIZE);
+            int windowOffset = (offset + done) % WINDOW_SIZE;
+            int count = Math.min(bytes.length - done, window.length - windowOffset);
+            if (toWindows) {
+                System.arraycopy(bytes, done, window, windowOffset, count);
+            }
+            else {
+                System.arraycopy(window, windowOffset, bytes, done, count);
+            }
+            done += count;
+        }
+    }
+
+    @Override
+    public boolean hasChanged() {
+        return changed;
+    }
+
+    @Override
+    public void clearChanges() {
+        changed = false;
+    }
+
+    @Override
+    public List<Information> information() {
+        List<Information> list = new ArrayList<>();
+        list.add(Information.builder("File Path").value(path.toString()));
+        list.add(Information.builder("Size (*.gz)").value(compressedSize));
+        list.add(Information.builder("Size").value(getSize()));
+        list.add(Information.builder("Inflated").value(inflatedLength));
+        return list;
+    }
+}
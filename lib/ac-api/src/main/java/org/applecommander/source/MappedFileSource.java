@@ -0,0 +1,162 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.source;
+
+import org.applecommander.capability.Capability;
+import org.applecommander.hint.Hint;
+import org.applecommander.util.Container;
+import org.applecommander.util.DataBuffer;
+import org.applecommander.util.Information;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A Source backed by a memory mapped file. This is intended for large images (such as hard disk
+ * images) where reading the entire file onto the heap is wasteful; only the pages actually touched
+ * are loaded by the operating system. Reads are zero-copy slices over the mapping.
+ * <p/>
+ * The mapping is private (copy-on-write): writes land in the mapped region but are <em>not</em>
+ * propagated to the file. The image file is only updated when the disk is saved, which keeps the
+ * backup-before-save behavior intact. If the file cannot be opened for writing, the mapping is
+ * read-only and the first write switches this Source over to an in-memory copy.
+ * <p/>
+ * Note that compressed (gzip) images are not supported; use {@link FileSource} for those.
+ */
+public class MappedFileSource implements Source {
+    /** Files of at least this size are mapped by {@link FileSource.Factory}; override with this system property. */
+    public static final String THRESHOLD_PROPERTY = "applecommander.source.mappedThreshold";
+    /** Default threshold is anything larger than an 800K floppy (and its 2IMG header). */
+    public static final long DEFAULT_THRESHOLD = 1024 * 1024;
+
+    private final Path path;
+    private final String filename;
+    private DataBuffer buffer;
+    private boolean mapped;
+    private boolean readOnly;
+    private boolean changed;
+
+    public MappedFileSource(Path path) {
+        this.path = path;
+        this.filename = path.toString();
+        try (FileChannel channel = openChannel(path)) {
+            // The mapping remains valid after the channel is closed
+            FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.PRIVATE;
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("file too large to map: %s (%d bytes)", filename, size));
+            }
+            this.buffer = DataBuffer.wrap(channel.map(mode, 0, size));
+            this.mapped = true;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** A private mapping requires a writable channel; fall back to read-only access when that is refused. */
+    private FileChannel openChannel(Path path) throws IOException {
+        try {
+            return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException | SecurityException ex) {
+            this.readOnly = true;
+            return FileChannel.open(path, StandardOpenOption.READ);
+        }
+    }
+
+    /**
+     * Determine the mapping threshold. The system property may be set to a size in bytes;
+     * 0 maps every (uncompressed) file and a negative value disables mapping entirely.
+     */
+    public static long threshold() {
+        return Long.getLong(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD);
+    }
+
+    @Override
+    public boolean can(Capability capability) {
+        return false;
+    }
+
+    @Override
+    public boolean is(Hint hint) {
+        return false;
+    }
+
+    @Override
+    public <T> Optional<T> get(Class<T> iface) {
+        return Container.get(iface, buffer);
+    }
+
+    @Override
+    public int getSize() {
+        return buffer.limit();
+    }
+
+    @Override
+    public String getName() {
+        return filename;
+    }
+
+    @Override
+    public DataBuffer readAllBytes() {
+        return buffer;
+    }
+
+    @Override
+    public DataBuffer readBytes(int offset, int length) {
+        return buffer.slice(offset, length);
+    }
+
+    @Override
+    public void writeBytes(int offset, DataBuffer data) {
+        if (readOnly) {
+            // Slices handed out earlier still reference the read-only mapping
+            buffer = DataBuffer.wrap(buffer.asBytes());
+            mapped = false;
+            readOnly = false;
+        }
+        buffer.put(offset, data);
+        changed = true;
+    }
+
+    @Override
+    public boolean hasChanged() {
+        return changed;
+    }
+
+    @Override
+    public void clearChanges() {
+        changed = false;
+    }
+
+    @Override
+    public List<Information> information() {
+        List<Information> list = new ArrayList<>();
+        list.add(Information.builder("File Path").value(path.toString()));
+        list.add(Information.builder("Size").value(buffer.limit()));
+        list.add(Information.builder("Memory Mapped").value(Boolean.toString(mapped)));
+        return list;
+    }
+}
@@ -30,7 +30,7 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 /// General usage pattern is as follows:
 /// ```java
 /// // Only save if there are changes.
-/// if (disk.getSource().hasChanged()) {
+/// if (disk.hasChanged()) {
 ///     backupStrategy.backup(disk.getFilename());
 ///     disk.save();
 /// }
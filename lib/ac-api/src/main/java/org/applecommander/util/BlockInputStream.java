@@ -0,0 +1,110 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.util;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * An InputStream over file data that is stored as a series of blocks (or sectors). Blocks are
+ * requested one at a time as the stream is read, so only a single block is held in memory.
+ * The stream is exactly the given length: the last block is truncated, and if the blocks run
+ * out early the remainder reads as zeros.
+ */
+public class BlockInputStream extends InputStream {
+    private final BlockSupplier supplier;
+    private final long length;
+    private long position;
+    private byte[] block;
+    private int blockOffset;
+
+    public BlockInputStream(long length, BlockSupplier supplier) {
+        this.supplier = supplier;
+        this.length = length;
+    }
+
+    /**
+     * Answer the current block, fetching the next one when the current block is used up.
+     * @return true if there is data available in the current block
+     */
+    private boolean fill() {
+        while (block == null || blockOffset >= block.length) {
+            block = supplier.next();
+            blockOffset = 0;
+            if (block == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() {
+        if (position >= length) {
+            return -1;
+        }
+        position++;
+        if (fill()) {
+            return Byte.toUnsignedInt(block[blockOffset++]);
+        }
+        return 0;
+    }
+
+    @Override
+    public int read(byte[] data, int offset, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - position);
+        int copied = 0;
+        while (copied < count) {
+            if (fill()) {
+                int n = Math.min(count - copied, block.length - blockOffset);
+                System.arraycopy(block, blockOffset, data, offset + copied, n);
+                blockOffset += n;
+                copied += n;
+            }
+            else {
+                // Out of blocks; the rest of the file is zeros
+                Arrays.fill(data, offset + copied, offset + count, (byte) 0);
+                copied = count;
+            }
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, length - position);
+    }
+
+    /**
+     * Supplies the blocks of a file, in order.
+     */
+    @FunctionalInterface
+    public interface BlockSupplier {
+        /** Answer the next block of data, or null when there are no more blocks. */
+        byte[] next();
+    }
+}
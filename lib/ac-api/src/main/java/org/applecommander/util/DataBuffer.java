@@ -45,6 +45,16 @@ public class DataBuffer {
         dbuf.buffer.order(ByteOrder.LITTLE_ENDIAN);
         return dbuf;
     }
+    /**
+     * Wrap an existing ByteBuffer (for instance, a memory mapped file) without copying it.
+     * The DataBuffer covers the remaining bytes of the given buffer.
+     */
+    public static DataBuffer wrap(ByteBuffer buffer) {
+        DataBuffer dbuf = new DataBuffer();
+        dbuf.buffer = buffer.slice();
+        dbuf.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return dbuf;
+    }
     public static DataBuffer wrap(int... bytes) {
         byte[] data = new byte[bytes.length];
         for (int i=0; i<bytes.length; i++) {
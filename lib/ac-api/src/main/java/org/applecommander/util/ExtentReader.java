@@ -0,0 +1,142 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.util;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Plans the reads of a file's data. The allocation units of a file (blocks, or sectors
+ * numbered linearly) are grouped into extents of consecutive units, and each extent is
+ * read from the device in a single request. On a plain ordered image that is one slice of
+ * the source instead of one access per unit.
+ * <p/>
+ * Extents may run upwards or downwards; DOS allocates from the top of a track down, so
+ * its files are usually stored in descending sector order. A unit number of 0 is an
+ * unallocated hole and reads as zeros.
+ */
+public class ExtentReader implements BlockInputStream.BlockSupplier {
+    private final PrimitiveIterator.OfInt units;
+    private final int unitSize;
+    private final int unitsPerGroup;
+    private final int maximumUnits;
+    private final Reader reader;
+    private int pending = -1;
+
+    /**
+     * @param units the allocation units of the file, in file order
+     * @param unitSize the size in bytes of an allocation unit
+     * @param unitsPerGroup extents never cross a group boundary (for instance, a track)
+     * @param maximumUnits the largest extent to read at once; this bounds memory use
+     * @param reader reads a run of ascending units from the device
+     */
+    public ExtentReader(PrimitiveIterator.OfInt units, int unitSize, int unitsPerGroup, int maximumUnits, Reader reader) {
+        this.units = units;
+        this.unitSize = unitSize;
+        this.unitsPerGroup = unitsPerGroup;
+        this.maximumUnits = maximumUnits;
+        this.reader = reader;
+    }
+
+    /**
+     * Answer the next extent of the file, or null when all units have been planned.
+     */
+    public Extent nextExtent() {
+        int first;
+        if (pending >= 0) {
+            first = pending;
+            pending = -1;
+        }
+        else if (units.hasNext()) {
+            first = units.nextInt();
+        }
+        else {
+            return null;
+        }
+        int count = 1;
+        int step = 0;
+        while (count < maximumUnits && units.hasNext()) {
+            int unit = units.nextInt();
+            if (first == 0) {
+                if (unit == 0) {
+                    count++;
+                    continue;
+                }
+            }
+            else if (unit != 0 && sameGroup(first, unit)) {
+                // The second unit decides the direction of the extent
+                if (step == 0 && Math.abs(unit - first) == 1) {
+                    step = unit - first;
+                }
+                if (step != 0 && unit == first + step * count) {
+                    count++;
+                    continue;
+                }
+            }
+            pending = unit;
+            break;
+        }
+        return new Extent(first, count, step < 0);
+    }
+
+    private boolean sameGroup(int a, int b) {
+        return a / unitsPerGroup == b / unitsPerGroup;
+    }
+
+    @Override
+    public byte[] next() {
+        Extent extent = nextExtent();
+        if (extent == null) {
+            return null;
+        }
+        if (extent.isHole()) {
+            return new byte[extent.count() * unitSize];
+        }
+        byte[] data = reader.read(extent.lowest(), extent.count());
+        if (extent.descending()) {
+            // Data was read in ascending order; put the units back into file order
+            byte[] ordered = new byte[data.length];
+            for (int i = 0; i < extent.count(); i++) {
+                System.arraycopy(data, (extent.count() - 1 - i) * unitSize, ordered, i * unitSize, unitSize);
+            }
+            return ordered;
+        }
+        return data;
+    }
+
+    /**
+     * A run of consecutive units, starting with the file's next unit.
+     */
+    public record Extent(int first, int count, boolean descending) {
+        public boolean isHole() {
+            return first == 0;
+        }
+        public int lowest() {
+            return descending ? first - count + 1 : first;
+        }
+    }
+
+    /**
+     * Reads a run of ascending units from the device.
+     */
+    @FunctionalInterface
+    public interface Reader {
+        byte[] read(int start, int count);
+    }
+}
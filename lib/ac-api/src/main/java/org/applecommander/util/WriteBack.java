@@ -0,0 +1,39 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.util;
+
+/**
+ * WriteBack marks a component that holds changes in memory and only writes them to the
+ * underlying Source when flushed. Components that sit on top of another WriteBack should
+ * flush (and report) that component as well.
+ * <p/>
+ * Locate these with {@link Container#get(Class)}; for example, a FormattedDisk flushes
+ * before it saves the Source.
+ */
+public interface WriteBack {
+    /**
+     * Indicates if there are changes that have not been written to the Source.
+     */
+    boolean hasPendingChanges();
+    /**
+     * Write out all pending changes.
+     */
+    void flush();
+}
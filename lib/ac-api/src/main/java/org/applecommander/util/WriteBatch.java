@@ -0,0 +1,105 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Holds the writes of a batch in memory, keyed by allocation unit (a block, or a sector
+ * numbered linearly). Reads of a unit written during the batch are served from memory.
+ * On commit the units are written out in order, with consecutive units handed over as
+ * one run; on rollback they are simply dropped.
+ */
+public class WriteBatch {
+    private final int unitSize;
+    private final TreeMap<Integer,byte[]> units = new TreeMap<>();
+
+    public WriteBatch(int unitSize) {
+        this.unitSize = unitSize;
+    }
+
+    /**
+     * Answer a copy of the unit as written in this batch, or null if it has not been written.
+     */
+    public byte[] read(int unit) {
+        byte[] data = units.get(unit);
+        return data == null ? null : data.clone();
+    }
+
+    /**
+     * Hold a copy of the unit's data until the batch is flushed.
+     */
+    public void write(int unit, byte[] data) {
+        assert(data.length == unitSize);
+        units.put(unit, data.clone());
+    }
+
+    public boolean isEmpty() {
+        return units.isEmpty();
+    }
+
+    public int size() {
+        return units.size();
+    }
+
+    /**
+     * Write out every unit, in unit order. Each run of consecutive units is given to the
+     * writer as one buffer. The batch is empty afterwards.
+     */
+    public void flush(RunWriter writer) {
+        int first = -1;
+        int count = 0;
+        byte[] run = null;
+        for (Map.Entry<Integer,byte[]> entry : units.entrySet()) {
+            if (first >= 0 && entry.getKey() != first + count) {
+                writer.write(first, run, count);
+                first = -1;
+            }
+            if (first < 0) {
+                first = entry.getKey();
+                count = 0;
+                run = new byte[countRun(first) * unitSize];
+            }
+            System.arraycopy(entry.getValue(), 0, run, count * unitSize, unitSize);
+            count++;
+        }
+        if (first >= 0) {
+            writer.write(first, run, count);
+        }
+        units.clear();
+    }
+
+    private int countRun(int first) {
+        int count = 0;
+        while (units.containsKey(first + count)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes a run of consecutive units to the device.
+     */
+    @FunctionalInterface
+    public interface RunWriter {
+        void write(int first, byte[] data, int count);
+    }
+}
@@ -22,6 +22,8 @@ package com.webcodepro.applecommander.storage;
 import com.webcodepro.applecommander.storage.FormattedDisk.DiskUsage;
 import com.webcodepro.applecommander.storage.filters.*;
 import com.webcodepro.applecommander.testconfig.TestConfig;
+import org.applecommander.device.TrackSectorDevice;
+import org.applecommander.device.TrackSectorNibbleDevice;
 import org.applecommander.source.Source;
 import org.applecommander.source.Sources;
 import org.junit.jupiter.api.Test;
@@ -185,6 +187,15 @@ public class DiskHelperTest {
         assertCanReadFiles(disks);
 	}
 
+	@Test
+	public void testNibbleIdentificationIsShared() {
+		Source source = Sources.create(config.getDiskDir() + "/DOS 3.3 System Master.woz2").orElseThrow();
+		DiskFactory.Context ctx = Disks.inspect(source);
+		TrackSectorDevice nibble = ctx.nibbleDevice().orElseThrow();
+		assertSame(nibble, ctx.nibbleDevice().orElseThrow());
+		assertSame(nibble, ctx.disks.getFirst().get(TrackSectorNibbleDevice.class).orElseThrow());
+	}
+
 	@Test
 	public void testLoadDos32SystemMasterWoz() throws IOException, DiskException {
 		FormattedDisk[] disks = showDirectory(config.getDiskDir() +
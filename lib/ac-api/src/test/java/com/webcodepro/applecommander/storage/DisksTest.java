@@ -0,0 +1,60 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage;
+
+import com.webcodepro.applecommander.testconfig.TestConfig;
+import org.applecommander.source.Source;
+import org.applecommander.source.Sources;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisksTest {
+    private static final String DISKS = TestConfig.getInstance().getDiskDir();
+
+    @ParameterizedTest
+    @ValueSource(strings = { "DOS 3.3.po", "MASTER.DSK", "UniDOS_3.3.dsk", "CPAM51B.dsk", "RDOSboot.dsk",
+            "Gutenberg_side1.DSK", "Super-Mon-dev.dsk", "DOS 3.3 System Master.woz2", "original32sysmasstd.d13" })
+    public void testParallelMatchesSerial(String filename) {
+        DiskFactory.Context serial = Disks.inspect(Sources.create(DISKS + "/" + filename).orElseThrow());
+        DiskFactory.Context parallel = Disks.inspectParallel(Sources.create(DISKS + "/" + filename).orElseThrow());
+        assertFalse(serial.disks.isEmpty());
+        assertEquals(describe(serial.disks), describe(parallel.disks));
+        assertEquals(serial.timings.keySet(), parallel.timings.keySet());
+    }
+
+    @Test
+    public void testCandidatesOnly() {
+        Source source = Sources.create(DISKS + "/UniDOS_3.3.dsk").orElseThrow();
+        DiskFactory.Context ctx = Disks.inspect(source);
+        // An 800K image cannot hold a 5.25" only filesystem
+        assertTrue(ctx.timings.containsKey("DosDiskFactory"));
+        assertFalse(ctx.timings.containsKey("CpmDiskFactory"));
+        assertFalse(ctx.timings.containsKey("RdosDiskFactory"));
+    }
+
+    private List<String> describe(List<FormattedDisk> disks) {
+        return disks.stream().map(disk -> disk.getFormat() + ":" + disk.getDiskName()).toList();
+    }
+}
@@ -20,14 +20,22 @@
 package com.webcodepro.applecommander.storage.os.dos33;
 
 import com.webcodepro.applecommander.storage.DiskConstants;
+import com.webcodepro.applecommander.storage.DiskException;
+import com.webcodepro.applecommander.storage.DiskFullException;
+import com.webcodepro.applecommander.storage.FileEntry;
+import com.webcodepro.applecommander.util.AppleUtil;
 import org.applecommander.device.DosOrderedTrackSectorDevice;
 import org.applecommander.device.TrackSectorDevice;
 import org.applecommander.hint.Hint;
 import org.applecommander.source.DataBufferSource;
 import org.applecommander.source.Source;
+import org.applecommander.util.DataBuffer;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class DosFormatDiskTest {
     @Test
@@ -43,4 +51,188 @@ public class DosFormatDiskTest {
         assertEquals("THE FILE NAME", disk.getSuggestedFilename("The File Name"));
         assertEquals("A\t HIDDEN TAB", disk.getSuggestedFilename("\t hidden tab"));
     }
+
+    @Test
+    public void testDeletedEntrySnapshots() throws DiskException, DiskFullException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-image").get();
+        int[] reads = new int[1];   // catalog track reads
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER) {
+            @Override
+            public DataBuffer readSector(int track, int sector) {
+                if (track == 17) reads[0]++;
+                return super.readSector(track, sector);
+            }
+        };
+        DosFormatDisk disk = DosFormatDisk.create("deleteme.do", device)[0];
+        for (int i = 0; i < 3; i++) {
+            FileEntry created = disk.createFile();
+            created.setFilename("FILE" + i);
+            created.setFiletype("T");
+            created.setFileData(new byte[] { (byte)0xc1, (byte)0x8d });
+        }
+        List<FileEntry> files = disk.getFiles();
+        DosFileEntry second = (DosFileEntry) files.get(1);
+        int track = second.getTrack();
+
+        // Deleting through another listing retires this listing's snapshots; DOS moves the
+        // track of the T/S list to the end of the filename and marks the entry with $FF
+        disk.getFiles().get(1).delete();
+        assertTrue(second.isDeleted());
+        assertEquals(0xff, second.getTrack());
+        assertEquals(track, AppleUtil.getUnsignedByte(second.readFileEntry()[0x20]));
+        assertEquals(0, second.getFileData().length);
+        assertFalse(files.get(2).isDeleted());
+
+        // The deleted entry stays in the catalog, and a new listing answers it from its snapshot
+        files = disk.getFiles();
+        assertEquals(3, files.size());
+        reads[0] = 0;
+        assertTrue(files.get(1).isDeleted());
+        assertEquals(0xff, ((DosFileEntry) files.get(1)).getTrack());
+        assertFalse(files.get(2).isDeleted());
+        assertEquals(0, reads[0]);
+
+        // Like CATALOG, a listing stops at the first entry with a track of 0
+        ((DosFileEntry) files.get(1)).setTrack(0);
+        assertEquals(1, disk.getFiles().size());
+    }
+
+    @Test
+    public void testSizeReadsOneDataSector() throws DiskException, DiskFullException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-image").get();
+        int[] reads = new int[1];   // sectors read outside the catalog track
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER) {
+            @Override
+            public DataBuffer readSector(int track, int sector) {
+                if (track != 17) reads[0]++;
+                return super.readSector(track, sector);
+            }
+            @Override
+            public DataBuffer readSectors(int track, int sector, int count) {
+                if (track != 17) reads[0] += count;
+                return super.readSectors(track, sector, count);
+            }
+        };
+        DosFormatDisk disk = DosFormatDisk.create("deleteme.do", device)[0];
+        FileEntry created = disk.createFile();
+        created.setFilename("BINARY");
+        created.setFiletype("B");
+        created.setAddress(0x2000);
+        created.setFileData(new byte[256 * 20]);
+
+        // The length of a binary file is in its header; the T/S list and the first data sector are all it takes
+        FileEntry entry = disk.getFiles().getFirst();
+        reads[0] = 0;
+        assertEquals(256 * 20, entry.getSize());
+        assertEquals(2, reads[0]);
+    }
+
+    @Test
+    public void testBatchCommitsByTrack() throws DiskException, DiskFullException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-image").get();
+        int[] writes = new int[2];  // sectors, tracks
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER) {
+            @Override
+            public void writeSector(int track, int sector, DataBuffer data) {
+                writes[0]++;
+                super.writeSector(track, sector, data);
+            }
+            @Override
+            public void writeTrack(int track, DataBuffer data) {
+                writes[1]++;
+                super.writeTrack(track, data);
+            }
+        };
+        DosFormatDisk disk = DosFormatDisk.create("deleteme.do", device)[0];
+        int freeSectors = disk.getFreeSectors();
+        byte[] vtoc = disk.readVtoc();
+
+        // Rolling back restores the VTOC, including the allocation track and direction
+        disk.beginBatch();
+        FileEntry entry = disk.createFile();
+        entry.setFilename("BATCHED");
+        entry.setFiletype("B");
+        entry.setFileData(new byte[256 * 40 - 4]);
+        assertEquals(freeSectors - 41, disk.getFreeSectors());
+        disk.rollback();
+        assertArrayEquals(vtoc, disk.readVtoc());
+        assertTrue(disk.getFiles().isEmpty());
+
+        // 41 sectors on tracks 18-20 plus the catalog track (VTOC and catalog sector)
+        writes[0] = writes[1] = 0;
+        disk.beginBatch();
+        entry = disk.createFile();
+        entry.setFilename("BATCHED");
+        entry.setFiletype("B");
+        entry.setFileData(new byte[256 * 40 - 4]);
+        assertArrayEquals(new int[] { 0, 0 }, writes);
+        disk.commit();
+        assertEquals(4, writes[1]);
+        assertEquals(0, writes[0]);
+        assertEquals(freeSectors - 41, disk.getFreeSectors());
+        assertEquals(256 * 40 - 4, disk.getFiles().getFirst().getFileData().length);
+    }
+
+    @Test
+    public void testSectorAllocationOrder() throws DiskException, DiskFullException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-image").get();
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER);
+        DosFormatDisk disk = DosFormatDisk.create("deleteme.do", device)[0];
+
+        // A binary file has a 4 byte header; like DOS, a fresh disk fills the track after the catalog from the highest sector down
+        DosFileEntry first = (DosFileEntry) disk.createFile();
+        first.setFilename("FIRST");
+        first.setFiletype("B");
+        first.setFileData(new byte[256 * 20 - 4]);
+        assertEquals(18, first.getTrack());
+        assertEquals(15, first.getSector());
+        byte[] vtoc = disk.readVtoc();
+        assertEquals(19, vtoc[0x30]);
+        assertEquals(1, vtoc[0x31]);
+
+        // The next file continues on the same track, then reverses toward track 1 at the end of the disk
+        int free = disk.getFreeSectors();
+        DosFileEntry second = (DosFileEntry) disk.createFile();
+        second.setFilename("SECOND");
+        second.setFiletype("B");
+        // each T/S list sector covers 122 data sectors
+        second.setFileData(new byte[256 * (free - (free + 122) / 123) - 4]);
+        assertEquals(19, second.getTrack());
+        assertEquals(-1, disk.readVtoc()[0x31]);
+        assertEquals(0, disk.getFreeSectors());
+
+        // Rewriting a file reuses its own sectors; a file that does not fit leaves the disk alone
+        first.setFileData(new byte[256 * 20 - 4]);
+        assertEquals(0, disk.getFreeSectors());
+        byte[] image = source.readAllBytes().asBytes();
+        assertThrows(DiskFullException.class, () -> first.setFileData(new byte[256 * 21 - 4]));
+        assertArrayEquals(image, source.readAllBytes().asBytes());
+    }
+
+    @Test
+    public void testCatalogTrackIsNotAllocated() throws DiskException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-image").get();
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER);
+        DosFormatDisk disk = DosFormatDisk.create("deleteme.do", device)[0];
+        // Only two sectors on the catalog track are marked free
+        byte[] vtoc = disk.readVtoc();
+        for (int track = 0; track < 35; track++) {
+            for (int sector = 0; sector < 16; sector++) {
+                disk.setSectorUsed(track, sector, vtoc);
+            }
+        }
+        disk.setSectorFree(17, 3, vtoc);
+        disk.setSectorFree(17, 4, vtoc);
+        disk.writeVtoc(vtoc);
+        // Those sectors cannot be allocated, so they are not counted as free either
+        assertEquals(0, disk.getFreeSectors());
+        assertEquals(0, disk.getFreeSpace());
+
+        FileEntry entry = disk.createFile();
+        entry.setFilename("NOROOM");
+        entry.setFiletype("T");
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(DiskFullException.class, () -> entry.setFileData(new byte[10])));
+        assertTrue(disk.isSectorFree(17, 3, disk.readVtoc()));
+    }
 }
@@ -20,13 +20,28 @@
 package com.webcodepro.applecommander.storage.os.prodos;
 
 import com.webcodepro.applecommander.storage.DiskConstants;
+import com.webcodepro.applecommander.storage.DiskException;
+import com.webcodepro.applecommander.storage.DiskFullException;
+import com.webcodepro.applecommander.storage.FileEntry;
 import org.applecommander.device.BlockDevice;
 import org.applecommander.device.ProdosOrderedBlockDevice;
 import org.applecommander.source.DataBufferSource;
 import org.applecommander.source.Source;
+import org.applecommander.util.DataBuffer;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ProdosFormatDiskTest {
     @Test
@@ -42,4 +57,359 @@ public class ProdosFormatDiskTest {
         assertEquals("THE.FILE.NAME", disk.getSuggestedFilename("The File Name"));
         assertEquals("A..HIDDEN.TAB", disk.getSuggestedFilename("\t hidden tab"));
     }
+
+    @Test
+    public void testNextFreeBlock() {
+        Random random = new Random(1234);
+        for (int n = 0; n < 100; n++) {
+            byte[] bitmap = new byte[1024];
+            // Mostly used blocks with the occasional free block
+            for (int i = 0; i < 20; i++) {
+                int block = random.nextInt(bitmap.length * 8);
+                bitmap[block / 8] |= (byte)(0x80 >> (block % 8));
+            }
+            int start = random.nextInt(bitmap.length * 8);
+            int limit = start + random.nextInt(bitmap.length * 8 - start);
+            int expected = -1;
+            for (int block = start; block < limit; block++) {
+                if ((bitmap[block / 8] & (0x80 >> (block % 8))) != 0) {
+                    expected = block;
+                    break;
+                }
+            }
+            assertEquals(expected, ProdosFormatDisk.nextFreeBlock(bitmap, start, limit));
+        }
+    }
+
+    @Test
+    public void testLargeFileAllocation() throws DiskFullException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_32MB_HARDDISK, "new-disk").get();
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "BIGDISK", blockDevice)[0];
+        int freeBlocks = disk.getFreeBlocks();
+
+        FileEntry small = disk.createFile();
+        small.setFilename("SMALL");
+        small.setFileData(new byte[1000]);
+        byte[] data = new byte[1024 * 1024];
+        new Random(42).nextBytes(data);
+        FileEntry large = disk.createFile();
+        large.setFilename("LARGE");
+        large.setFileData(data);
+        // 2048 data blocks + 8 index blocks + 1 master index block, plus 1 + 1 for the small file
+        // (its second block is all zeros, so it is left as a hole)
+        assertEquals(freeBlocks - 2057 - 2, disk.getFreeBlocks());
+        assertArrayEquals(data, large.getFileData());
+
+        // Freed blocks are reused
+        small.delete();
+        FileEntry again = disk.createFile();
+        again.setFilename("AGAIN");
+        again.setFileData(new byte[1000]);
+        assertEquals(freeBlocks - 2057 - 2, disk.getFreeBlocks());
+    }
+
+    @Test
+    public void testDirectoryBlocksReadOncePerListing() throws DiskException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-disk").get();
+        Map<Integer,Integer> reads = new HashMap<>();  // directory block -> device reads
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE) {
+            @Override
+            public DataBuffer readBlock(int block) {
+                if (block >= 2 && block <= 5) reads.merge(block, 1, Integer::sum);
+                return super.readBlock(block);
+            }
+        };
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "SNAPSHOT", blockDevice)[0];
+        // Block 2 holds the volume header and 12 entries, the others 13 each, so 30 files span blocks 2 to 4
+        for (int i = 0; i < 30; i++) {
+            FileEntry created = disk.createFile();
+            created.setFilename("FILE" + i);
+            created.setFiletype("BIN");
+            created.setFileData(new byte[] { 0x01, 0x02 });
+        }
+
+        reads.clear();
+        List<FileEntry> files = disk.getFiles();
+        assertEquals(30, files.size());
+        for (FileEntry file : files) {
+            file.getFilename();
+            file.getFiletype();
+            file.getSize();
+            file.isLocked();
+        }
+        // The whole volume directory chain (blocks 2 to 5) is read once; the entries answer from their snapshots
+        assertEquals(4, reads.size());
+        reads.values().forEach(count -> assertEquals(1, count));
+
+        // Renaming the last entry in block 4 also retires the snapshots taken from block 2
+        reads.clear();
+        files.get(29).setFilename("RENAMED");
+        assertEquals("FILE0", files.getFirst().getFilename());
+        assertEquals(1, reads.get(2));
+        assertEquals("RENAMED", disk.getFiles().get(29).getFilename());
+    }
+
+    @Test
+    public void testStreamingFileData() throws DiskFullException, IOException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_800KB_DISK, "new-disk").get();
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "STREAMS", blockDevice)[0];
+        int freeBlocks = disk.getFreeBlocks();
+
+        // Large enough to be a tree file; odd length to exercise a partial last block
+        byte[] data = new byte[200_001];
+        new Random(21).nextBytes(data);
+        FileEntry streamed = disk.createFile();
+        streamed.setFilename("STREAMED");
+        streamed.setFileData(new ByteArrayInputStream(data), data.length);
+        int streamedBlocks = freeBlocks - disk.getFreeBlocks();
+        assertEquals(data.length, streamed.getSize());
+        assertArrayEquals(data, streamed.getFileData());
+        try (InputStream inputStream = streamed.getFileDataStream()) {
+            assertArrayEquals(data, inputStream.readAllBytes());
+        }
+
+        // Streaming and buffered writes allocate the same blocks
+        FileEntry buffered = disk.createFile();
+        buffered.setFilename("BUFFERED");
+        buffered.setFileData(data);
+        assertEquals(streamedBlocks * 2, freeBlocks - disk.getFreeBlocks());
+
+        // A short stream is an error
+        FileEntry shorter = disk.createFile();
+        shorter.setFilename("SHORTER");
+        assertThrows(EOFException.class, () -> shorter.setFileData(new ByteArrayInputStream(data), data.length + 1));
+    }
+
+    @Test
+    public void testFailingStreamLeavesFileIntact() throws DiskException, IOException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_800KB_DISK, "new-disk").get();
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "FAILURE", blockDevice)[0];
+        byte[] data = new byte[5000];
+        new Random(21).nextBytes(data);
+        FileEntry entry = disk.createFile();
+        entry.setFilename("ORIGINAL");
+        entry.setFileData(data);
+        int freeBlocks = disk.getFreeBlocks();
+        byte[] image = source.readAllBytes().asBytes();
+
+        // The replacement stream fails after 2000 bytes
+        InputStream failing = new InputStream() {
+            private int count;
+            @Override
+            public int read() throws IOException {
+                if (count++ >= 2000) throw new IOException("read failed");
+                return 0x55;
+            }
+        };
+        assertThrows(IOException.class, () -> entry.setFileData(failing, data.length));
+        assertFalse(disk.isBatch());
+        assertEquals(freeBlocks, disk.getFreeBlocks());
+        assertArrayEquals(data, entry.getFileData());
+        // Partial data may have gone to free blocks, but no block in use has changed
+        byte[] bitmap = disk.readVolumeBitMap();
+        byte[] current = source.readAllBytes().asBytes();
+        for (int block = 0; block < disk.getBitmapLength(); block++) {
+            if (!disk.isBlockFree(bitmap, block)) {
+                int offset = block * BlockDevice.STANDARD_BLOCK_SIZE;
+                assertArrayEquals(Arrays.copyOfRange(image, offset, offset + BlockDevice.STANDARD_BLOCK_SIZE),
+                        Arrays.copyOfRange(current, offset, offset + BlockDevice.STANDARD_BLOCK_SIZE),
+                        "block " + block);
+            }
+        }
+
+        // The old blocks are still in use, so a new file does not overwrite them
+        FileEntry other = disk.createFile();
+        other.setFilename("OTHER");
+        other.setFileData(new byte[5000]);
+        assertArrayEquals(data, disk.getFiles().getFirst().getFileData());
+    }
+
+    @Test
+    public void testRewriteOnFullVolume() throws DiskException, IOException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-disk").get();
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "FULL", blockDevice)[0];
+        // A tree file of more than 256 data blocks also needs 2 index blocks and a master index block
+        byte[] data = new byte[(disk.getFreeBlocks() - 3) * BlockDevice.STANDARD_BLOCK_SIZE];
+        new Random(21).nextBytes(data);
+        FileEntry entry = disk.createFile();
+        entry.setFilename("FULL");
+        entry.setFileData(data);
+        assertEquals(0, disk.getFreeBlocks());
+
+        // The old blocks are released first, so a file of the same size still fits
+        new Random(22).nextBytes(data);
+        entry.setFileData(data);
+        assertEquals(0, disk.getFreeBlocks());
+        assertArrayEquals(data, entry.getFileData());
+
+        // A stream that only fits in place of the old blocks reuses them too
+        new Random(23).nextBytes(data);
+        entry.setFileData(new ByteArrayInputStream(data), data.length);
+        assertEquals(0, disk.getFreeBlocks());
+        assertArrayEquals(data, entry.getFileData());
+
+        // One more block does not fit
+        assertThrows(DiskFullException.class, () -> entry.setFileData(new byte[data.length + 1]));
+    }
+
+    @Test
+    public void testStreamingDoesNotBufferFileData() throws DiskException, IOException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_32MB_HARDDISK, "new-disk").get();
+        int[] writes = new int[1];
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE) {
+            @Override
+            public void writeBlock(int block, DataBuffer blockData) {
+                writes[0]++;
+                super.writeBlock(block, blockData);
+            }
+        };
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "STREAM", blockDevice)[0];
+        final int length = 2 * 1024 * 1024;
+
+        // As each block is read, note how many earlier data blocks have not reached the device yet
+        writes[0] = 0;
+        int[] pending = new int[1];
+        boolean[] batched = new boolean[1];
+        InputStream stream = new InputStream() {
+            private int count;
+            @Override
+            public int read() {
+                if (count % BlockDevice.STANDARD_BLOCK_SIZE == 0) {
+                    pending[0] = Math.max(pending[0], count / BlockDevice.STANDARD_BLOCK_SIZE - writes[0]);
+                    batched[0] |= disk.isBatch();
+                }
+                count++;
+                return 0x5a;
+            }
+        };
+        FileEntry entry = disk.createFile();
+        entry.setFilename("LARGE");
+        entry.setFileData(stream, length);
+        assertEquals(length, entry.getSize());
+        // Every block went to the device before the next one was read
+        assertFalse(batched[0]);
+        assertEquals(0, pending[0]);
+    }
+
+    @Test
+    public void testSparseFiles() throws DiskFullException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_800KB_DISK, "new-disk").get();
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "SPARSE", blockDevice)[0];
+        int freeBlocks = disk.getFreeBlocks();
+
+        // A tree file where the second index block would only hold holes
+        byte[] data = new byte[3 * 256 * 512];
+        Arrays.fill(data, 0, 512, (byte) 0x11);
+        Arrays.fill(data, 100 * 512, 101 * 512, (byte) 0x22);
+        Arrays.fill(data, data.length - 1, data.length, (byte) 0x33);
+        ProdosFileEntry sparse = (ProdosFileEntry) disk.createFile();
+        sparse.setFilename("SPARSE");
+        sparse.setFiletype("BIN");
+        sparse.setFileData(data);
+        assertTrue(sparse.isTreeFile());
+        // 3 data blocks + 2 index blocks + 1 master index block
+        assertEquals(6, sparse.getBlocksUsed());
+        assertEquals(freeBlocks - 6, disk.getFreeBlocks());
+        BitSet holes = sparse.getHoleMap();
+        assertEquals(3 * 256 - 3, holes.cardinality());
+        assertFalse(holes.get(0));
+        assertFalse(holes.get(100));
+        assertFalse(holes.get(3 * 256 - 1));
+        assertArrayEquals(data, sparse.getFileData());
+
+        // System files are never written with holes
+        ProdosFileEntry system = (ProdosFileEntry) disk.createFile();
+        system.setFilename("SYSTEM");
+        system.setFiletype("SYS");
+        system.setFileData(new byte[4096]);
+        assertEquals(9, system.getBlocksUsed());
+        assertTrue(system.getHoleMap().isEmpty());
+    }
+
+    @Test
+    public void testBatchCommitAndRollback() throws DiskException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_800KB_DISK, "new-disk").get();
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "BATCH", blockDevice)[0];
+        byte[] image = source.readAllBytes().asBytes();
+        int freeBlocks = disk.getFreeBlocks();
+        byte[] data = new byte[5000];
+        new Random(24).nextBytes(data);
+
+        disk.beginBatch();
+        for (int i = 0; i < 20; i++) {
+            FileEntry entry = disk.createFile();
+            entry.setFilename("FILE" + i);
+            entry.setFileData(data);
+        }
+        // Each file is 10 data blocks and an index block; the volume directory already has room
+        assertEquals(freeBlocks - 20 * 11, disk.getFreeBlocks());
+        assertArrayEquals(data, disk.getFiles().get(19).getFileData());
+        assertArrayEquals(image, source.readAllBytes().asBytes());
+        disk.rollback();
+        assertTrue(disk.getFiles().isEmpty());
+        assertEquals(freeBlocks, disk.getFreeBlocks());
+        assertArrayEquals(image, source.readAllBytes().asBytes());
+
+        disk.beginBatch();
+        for (int i = 0; i < 20; i++) {
+            FileEntry entry = disk.createFile();
+            entry.setFilename("FILE" + i);
+            entry.setFileData(data);
+        }
+        disk.commit();
+        assertEquals(freeBlocks - 20 * 11, disk.getFreeBlocks());
+        assertEquals(20, disk.getFiles().size());
+        assertArrayEquals(data, disk.getFiles().get(19).getFileData());
+    }
+
+    @Test
+    public void testFailedCommitLeavesBatchOpen() throws DiskException {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_800KB_DISK, "new-disk").get();
+        boolean[] fail = new boolean[1];
+        BlockDevice blockDevice = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE) {
+            @Override
+            public void writeBlocks(int block, DataBuffer data) {
+                if (fail[0]) throw new IllegalStateException("write failed");
+                super.writeBlocks(block, data);
+            }
+        };
+        ProdosFormatDisk disk = ProdosFormatDisk.create("deleteme.po", "COMMIT", blockDevice)[0];
+        int freeBlocks = disk.getFreeBlocks();
+        byte[] data = new byte[5000];
+        new Random(24).nextBytes(data);
+
+        disk.beginBatch();
+        FileEntry entry = disk.createFile();
+        entry.setFilename("FILE");
+        entry.setFileData(data);
+        fail[0] = true;
+        assertThrows(IllegalStateException.class, disk::commit);
+        // The batch still holds every write, the bitmap included
+        assertTrue(disk.isBatch());
+        assertEquals(freeBlocks - 11, disk.getFreeBlocks());
+        assertArrayEquals(data, disk.getFiles().getFirst().getFileData());
+
+        // So the commit can be tried again
+        fail[0] = false;
+        disk.commit();
+        assertFalse(disk.isBatch());
+        assertEquals(freeBlocks - 11, disk.getFreeBlocks());
+        assertArrayEquals(data, disk.getFiles().getFirst().getFileData());
+
+        // Or rolled back
+        disk.beginBatch();
+        disk.getFiles().getFirst().delete();
+        fail[0] = true;
+        assertThrows(IllegalStateException.class, disk::commit);
+        disk.rollback();
+        assertFalse(disk.isBatch());
+        assertEquals(freeBlocks - 11, disk.getFreeBlocks());
+        assertEquals(1, disk.getFiles().size());
+    }
 }
@@ -0,0 +1,163 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package com.webcodepro.applecommander.storage.os.shrinkit;
+
+import com.webcodepro.applecommander.storage.*;
+import com.webcodepro.applecommander.storage.os.prodos.ProdosFormatDisk;
+import org.applecommander.device.BlockDevice;
+import org.applecommander.device.ProdosOrderedBlockDevice;
+import org.applecommander.hint.Hint;
+import org.applecommander.source.DataBufferSource;
+import org.applecommander.source.Source;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.webcodepro.shrinkit.io.ByteConstants.NUFILE_ID;
+import static com.webcodepro.shrinkit.io.ByteConstants.NUFX_ID;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShrinkitFormatDiskTest {
+    private static final byte[] HELLO = "HELLO, WORLD\r".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CODE = { (byte)0xa9, 0x00, (byte)0x8d, 0x00, (byte)0xc0, 0x60 };
+
+    @Test
+    public void testArchiveIsListedWithoutUnpacking() throws DiskException {
+        Source source = new ArchiveBuilder()
+                .file("HELLO", 0x04, 0x0000, HELLO)
+                .file("CODE", 0x06, 0x0300, CODE)
+                .get();
+        Source archive = new ShrinkitSourceFactory().fromSource(source).orElseThrow();
+        assertInstanceOf(ShrinkitArchive.class, archive);
+        assertTrue(archive.is(Hint.ORIGIN_SHRINKIT));
+
+        DiskFactory.Context ctx = Disks.inspect(archive);
+        assertEquals(1, ctx.disks.size());
+        FormattedDisk disk = ctx.disks.getFirst();
+        assertInstanceOf(ShrinkitFormatDisk.class, disk);
+        assertFalse(disk.canWriteFileData());
+
+        List<FileEntry> files = disk.getFiles();
+        assertEquals(2, files.size());
+        FileEntry hello = files.get(0);
+        assertEquals("HELLO", hello.getFilename());
+        assertEquals("TXT", hello.getFiletype());
+        assertEquals(HELLO.length, hello.getSize());
+        assertArrayEquals(HELLO, hello.getFileData());
+        FileEntry code = disk.getFile("CODE");
+        assertEquals("BIN", code.getFiletype());
+        assertEquals(0x0300, code.getAddress());
+        assertArrayEquals(CODE, code.getFileData());
+
+        assertThrows(UnsupportedOperationException.class, () -> code.setFileData(HELLO));
+        assertThrows(UnsupportedOperationException.class, disk::createFile);
+    }
+
+    @Test
+    public void testConvertToProdos() throws DiskException {
+        Source source = new ArchiveBuilder()
+                .file("HELLO", 0x04, 0x0000, HELLO)
+                .get();
+        Source image = new ShrinkitSourceFactory().fromSource(source, 0).orElseThrow();
+        DiskFactory.Context ctx = Disks.inspect(image);
+        FormattedDisk disk = ctx.disks.getFirst();
+        assertInstanceOf(ProdosFormatDisk.class, disk);
+        assertArrayEquals(HELLO, disk.getFile("HELLO").getFileData());
+    }
+
+    @Test
+    public void testDiskImageIsExtracted() throws DiskException {
+        Source original = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "sdk").get();
+        ProdosFormatDisk prodos = ProdosFormatDisk.create("sdk", "SDK",
+                new ProdosOrderedBlockDevice(original, BlockDevice.STANDARD_BLOCK_SIZE))[0];
+        prodos.createFile().setFileData(HELLO);
+        Source source = new ArchiveBuilder()
+                .diskImage("SDK", original.readAllBytes().asBytes())
+                .get();
+        Source image = new ShrinkitSourceFactory().fromSource(source).orElseThrow();
+        assertFalse(image instanceof ShrinkitArchive);
+        assertEquals(DiskConstants.APPLE_140KB_DISK, image.getSize());
+        DiskFactory.Context ctx = Disks.inspect(image);
+        assertInstanceOf(ProdosFormatDisk.class, ctx.disks.getFirst());
+    }
+
+    /**
+     * Builds a minimal (uncompressed) NuFX archive. The CRCs are not checked when reading, so they are left as zero.
+     */
+    static class ArchiveBuilder {
+        private final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        private int count;
+
+        ArchiveBuilder file(String name, int filetype, int auxtype, byte[] data) {
+            return record(name, 0x0001, filetype, auxtype, 0x0001, 0x0000, data);
+        }
+        ArchiveBuilder diskImage(String name, byte[] data) {
+            // For disk images, storage type is the block size and the aux type is the block count
+            return record(name, 0x0001, 0x0000, data.length / 512, 512, 0x0001, data);
+        }
+
+        private ArchiveBuilder record(String name, int fileSysId, int filetype, int auxtype,
+                                      int storageType, int threadKind, byte[] data) {
+            records.writeBytes(NUFX_ID);
+            word(0);                // header CRC
+            word(58);               // attribute count
+            word(0);                // version
+            word(1);                // total threads
+            word(0);
+            word(fileSysId);
+            word(':');              // file system separator
+            word(0xe3); word(0);    // access
+            word(filetype); word(0);
+            word(auxtype); word(0);
+            word(storageType);
+            records.writeBytes(new byte[24]);   // create, modify, archive dates
+            byte[] filename = name.getBytes(StandardCharsets.US_ASCII);
+            word(filename.length);
+            records.writeBytes(filename);
+            // Thread record: class=data, format=uncompressed
+            word(0x0002);
+            word(0x0000);
+            word(threadKind);
+            word(0);                // thread CRC
+            word(data.length); word(data.length >> 16);
+            word(data.length); word(data.length >> 16);
+            records.writeBytes(data);
+            count++;
+            return this;
+        }
+        private void word(int value) {
+            records.write(value & 0xff);
+            records.write((value >> 8) & 0xff);
+        }
+
+        Source get() {
+            ByteArrayOutputStream archive = new ByteArrayOutputStream();
+            archive.writeBytes(NUFILE_ID);
+            archive.write(0); archive.write(0);             // master CRC
+            archive.write(count); archive.write(0); archive.write(0); archive.write(0);
+            archive.writeBytes(new byte[16]);               // create, modify dates
+            archive.writeBytes(new byte[48 - archive.size()]);
+            archive.writeBytes(records.toByteArray());
+            return DataBufferSource.create(archive.toByteArray(), "test.shk").get();
+        }
+    }
+}
@@ -33,6 +33,8 @@ import org.applecommander.source.DataBufferSource;
 import org.applecommander.source.Source;
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -60,6 +62,21 @@ public class AppleUtilTest {
 		testApplesoftFloat(Math.PI * 2, 0x83490FDAA2L);
 	}
 	
+	@Test
+	public void testBitCount() {
+		byte[] data = new byte[0x100];
+		new Random(99).nextBytes(data);
+		for (int offset : new int[] { 0, 3, 0x38 }) {
+			for (int length : new int[] { 0, 5, 8, 0xff - 0x38, 0x100 - offset }) {
+				int expected = 0;
+				for (int i=offset; i<offset+length; i++) {
+					expected+= AppleUtil.getBitCount(data[i]);
+				}
+				assertEquals(expected, AppleUtil.getBitCount(data, offset, length));
+			}
+		}
+	}
+
 	protected void testApplesoftFloat(double question, long correctAnswer) {
 		byte[] testAnswer = AppleUtil.getApplesoftFloat(question);
 		long answer = testAnswer[0] & 0xff;
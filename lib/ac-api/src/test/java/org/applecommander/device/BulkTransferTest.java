@@ -0,0 +1,129 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device;
+
+import com.webcodepro.applecommander.storage.DiskConstants;
+import org.applecommander.source.DataBufferSource;
+import org.applecommander.source.Source;
+import org.applecommander.util.BlockInputStream;
+import org.applecommander.util.DataBuffer;
+import org.applecommander.util.ExtentReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkTransferTest {
+    @Test
+    public void testReadTrackMatchesSectors() {
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(randomSource());
+        TrackSectorDevice skewed = SkewedTrackSectorDevice.dosToPascalSkew(device);
+        for (TrackSectorDevice d : new TrackSectorDevice[] { device, skewed }) {
+            DataBuffer trackData = d.readTrack(17);
+            for (int sector = 0; sector < 16; sector++) {
+                assertEquals(d.readSector(17, sector), trackData.slice(sector * 256, 256));
+            }
+        }
+    }
+
+    @Test
+    public void testReadBlocksMatchesBlocks() {
+        TrackSectorDevice device = SkewedTrackSectorDevice.dosToPascalSkew(
+                new DosOrderedTrackSectorDevice(randomSource()));
+        BlockDevice blockDevice = new TrackSectorToBlockAdapter(device, TrackSectorToBlockAdapter.BlockStyle.PRODOS);
+        // Starts mid-track and ends mid-track
+        DataBuffer data = blockDevice.readBlocks(5, 20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(blockDevice.readBlock(5 + i), data.slice(i * 512, 512));
+        }
+    }
+
+    @Test
+    public void testWriteBlocks() {
+        DataBuffer data = randomSource().readBytes(0, 20 * 512);
+        BlockDevice prodos = new ProdosOrderedBlockDevice(
+                DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "prodos").get(), 512);
+        BlockDevice adapter = new TrackSectorToBlockAdapter(
+                SkewedTrackSectorDevice.dosToPascalSkew(new DosOrderedTrackSectorDevice(
+                        DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "dos").get())),
+                TrackSectorToBlockAdapter.BlockStyle.PRODOS);
+        for (BlockDevice device : new BlockDevice[] { prodos, adapter }) {
+            device.writeBlocks(3, data);
+            for (int i = 0; i < 20; i++) {
+                assertEquals(data.slice(i * 512, 512), device.readBlock(3 + i));
+            }
+            assertEquals(0, device.readBlock(2).getUnsignedByte(0));
+            assertEquals(0, device.readBlock(23).getUnsignedByte(0));
+        }
+    }
+
+    @Test
+    public void testReadSectorsMatchesSectors() {
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(randomSource());
+        TrackSectorDevice skewed = SkewedTrackSectorDevice.dosToPascalSkew(device);
+        for (TrackSectorDevice d : new TrackSectorDevice[] { device, skewed }) {
+            DataBuffer data = d.readSectors(9, 3, 10);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(d.readSector(9, 3 + i), data.slice(i * 256, 256));
+            }
+        }
+    }
+
+    @Test
+    public void testExtentPlanning() {
+        // Ascending run, hole, descending run split by a track boundary, then a lone unit
+        int[] units = { 10, 11, 12, 0, 0, 33, 32, 31, 30, 29, 15, 40 };
+        ExtentReader reader = new ExtentReader(Arrays.stream(units).iterator(), 256, 16, 4, (start, count) -> null);
+        List<ExtentReader.Extent> extents = new ArrayList<>();
+        for (ExtentReader.Extent extent = reader.nextExtent(); extent != null; extent = reader.nextExtent()) {
+            extents.add(extent);
+        }
+        assertEquals(List.of(
+                new ExtentReader.Extent(10, 3, false),
+                new ExtentReader.Extent(0, 2, false),
+                new ExtentReader.Extent(33, 2, true),
+                new ExtentReader.Extent(31, 3, true),
+                new ExtentReader.Extent(15, 1, false),
+                new ExtentReader.Extent(40, 1, false)), extents);
+    }
+
+    @Test
+    public void testExtentReaderMatchesSectors() throws IOException {
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(randomSource());
+        int[] sectors = { 0x1f, 0x1e, 0x1d, 0x1c, 0x25, 0x26, 0x12, 0x50 };
+        ExtentReader reader = new ExtentReader(Arrays.stream(sectors).iterator(), 256, 16, 16,
+                (start, count) -> device.readSectors(start / 16, start % 16, count).asBytes());
+        byte[] data = new BlockInputStream(sectors.length * 256L, reader).readAllBytes();
+        for (int i = 0; i < sectors.length; i++) {
+            assertEquals(device.readSector(sectors[i] / 16, sectors[i] % 16), DataBuffer.wrap(data).slice(i * 256, 256));
+        }
+    }
+
+    private Source randomSource() {
+        byte[] data = new byte[DiskConstants.APPLE_140KB_DISK];
+        new Random(140).nextBytes(data);
+        return DataBufferSource.create(data, "random").get();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device;
+
+import com.webcodepro.applecommander.storage.DiskConstants;
+import com.webcodepro.applecommander.storage.DiskException;
+import com.webcodepro.applecommander.storage.DiskFactory;
+import com.webcodepro.applecommander.storage.Disks;
+import com.webcodepro.applecommander.storage.FormattedDisk;
+import com.webcodepro.applecommander.testconfig.TestConfig;
+import org.applecommander.hint.Hint;
+import org.applecommander.source.DataBufferSource;
+import org.applecommander.source.Source;
+import org.applecommander.source.Sources;
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingDeviceTest {
+    private static final String DISKS = TestConfig.getInstance().getDiskDir();
+
+    @Test
+    public void testWriteBack() {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-disk").get();
+        BlockDevice device = new ProdosOrderedBlockDevice(source, BlockDevice.STANDARD_BLOCK_SIZE);
+        CachingBlockDevice cache = new CachingBlockDevice(device, 2, DeviceCache.WritePolicy.WRITE_BACK);
+
+        DataBuffer data = DataBuffer.create(BlockDevice.STANDARD_BLOCK_SIZE);
+        data.fill(0x55);
+        cache.writeBlock(10, data);
+        assertTrue(cache.hasPendingChanges());
+        assertEquals(0, device.readBlock(10).getUnsignedByte(0));
+        assertEquals(0x55, cache.readBlock(10).getUnsignedByte(0));
+
+        cache.flush();
+        assertFalse(cache.hasPendingChanges());
+        assertEquals(0x55, device.readBlock(10).getUnsignedByte(0));
+
+        // Eviction writes dirty blocks out
+        data.fill(0xaa);
+        cache.writeBlock(11, data);
+        cache.readBlock(12);
+        cache.readBlock(13);
+        assertEquals(0xaa, device.readBlock(11).getUnsignedByte(0));
+
+        DeviceCache.Statistics stats = cache.get(DeviceCache.Statistics.class).orElseThrow();
+        assertEquals(2, stats.size());
+        assertEquals(0, stats.dirty());
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(2, stats.evictions());
+    }
+
+    @Test
+    public void testUnreadableSectorIsNotCached() {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-disk").get();
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER) {
+            private int reads;
+            @Override
+            public DataBuffer readSector(int track, int sector) {
+                // Like a nibble image with a bad checksum the first time through
+                return reads++ == 0 ? null : super.readSector(track, sector);
+            }
+        };
+        CachingTrackSectorDevice cache = new CachingTrackSectorDevice(device, 16, DeviceCache.WritePolicy.WRITE_THROUGH);
+
+        assertNull(cache.readSector(17, 0));
+        assertNotNull(cache.readSector(17, 0));
+        DeviceCache.Statistics stats = cache.get(DeviceCache.Statistics.class).orElseThrow();
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.misses());
+    }
+
+    @Test
+    public void testWriteThrough() {
+        Source source = DataBufferSource.create(DiskConstants.APPLE_140KB_DISK, "new-disk").get();
+        TrackSectorDevice device = new DosOrderedTrackSectorDevice(source, Hint.DOS_SECTOR_ORDER);
+        CachingTrackSectorDevice cache = new CachingTrackSectorDevice(device, 16, DeviceCache.WritePolicy.WRITE_THROUGH);
+
+        DataBuffer data = DataBuffer.create(TrackSectorDevice.SECTOR_SIZE);
+        data.fill(0x42);
+        cache.writeSector(17, 15, data);
+        assertFalse(cache.hasPendingChanges());
+        assertEquals(0x42, device.readSector(17, 15).getUnsignedByte(0));
+        // Changing the caller's buffer does not change the cache
+        data.fill(0);
+        assertEquals(0x42, cache.readSector(17, 15).getUnsignedByte(0));
+    }
+
+    @Test
+    public void testContextCaching() throws DiskException {
+        Source source = Sources.create(Path.of(DISKS, "Prodos.dsk")).orElseThrow();
+        DiskFactory.Context ctx = Disks.inspect(source, new DeviceCache.Config(64, DeviceCache.WritePolicy.WRITE_THROUGH));
+        assertFalse(ctx.disks.isEmpty());
+        FormattedDisk disk = ctx.disks.getFirst();
+        assertFalse(disk.getFiles().isEmpty());
+        assertTrue(disk.get(DeviceCache.Statistics.class).isPresent());
+    }
+}
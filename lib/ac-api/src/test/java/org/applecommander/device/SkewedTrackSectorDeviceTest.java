@@ -0,0 +1,81 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device;
+
+import com.webcodepro.applecommander.storage.DiskConstants;
+import org.applecommander.source.DataBufferSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SkewedTrackSectorDeviceTest {
+    private static final int[] DOS_TO_PHYSICAL = { 0x0, 0x7, 0xe, 0x6, 0xd, 0x5, 0xc, 0x4,
+                                                   0xb, 0x3, 0xa, 0x2, 0x9, 0x1, 0x8, 0xf };
+    private static final int[] DOS_TO_PASCAL = { 0x0, 0xe, 0xd, 0xc, 0xb, 0xa, 0x9, 0x8,
+                                                 0x7, 0x6, 0x5, 0x4, 0x3, 0x2, 0x1, 0xf };
+
+    @Test
+    public void testIdentityCollapses() {
+        TrackSectorDevice device = randomDevice();
+        assertSame(device, SkewedTrackSectorDevice.physicalToDosSkew(
+                SkewedTrackSectorDevice.dosToPhysicalSkew(device)));
+        assertSame(device, SkewedTrackSectorDevice.pascalToPhysicalSkew(
+                SkewedTrackSectorDevice.physicalToPascalSkew(device)));
+    }
+
+    @Test
+    public void testComposition() {
+        TrackSectorDevice device = randomDevice();
+        TrackSectorDevice skewed = SkewedTrackSectorDevice.dosToPhysicalSkew(
+                SkewedTrackSectorDevice.dosToPascalSkew(device));
+        assertInstanceOf(SkewedTrackSectorDevice.class, skewed);
+        assertSame(device, ((SkewedTrackSectorDevice) skewed).getDevice());
+        for (int sector = 0; sector < 16; sector++) {
+            assertEquals(device.readSector(3, DOS_TO_PASCAL[DOS_TO_PHYSICAL[sector]]), skewed.readSector(3, sector));
+        }
+
+        // Truncation composes too, but a full skew over a truncated device cannot
+        TrackSectorDevice truncated = SkewedTrackSectorDevice.truncate16sectorTo13(
+                SkewedTrackSectorDevice.dosToPhysicalSkew(device));
+        assertSame(device, ((SkewedTrackSectorDevice) truncated).getDevice());
+        assertEquals(13, truncated.getGeometry().sectorsPerTrack());
+        for (int sector = 0; sector < 13; sector++) {
+            assertEquals(device.readSector(3, DOS_TO_PHYSICAL[sector]), truncated.readSector(3, sector));
+        }
+    }
+
+    @Test
+    public void testBlockAdapterUsesSkew() {
+        TrackSectorDevice device = randomDevice();
+        TrackSectorDevice skewed = SkewedTrackSectorDevice.dosToPascalSkew(device);
+        BlockDevice blockDevice = new TrackSectorToBlockAdapter(skewed, TrackSectorToBlockAdapter.BlockStyle.PRODOS);
+        // ProDOS block 0 is DOS T0,S0 and T0,S14
+        assertEquals(device.readSector(0, 0), blockDevice.readBlock(0).slice(0, 256));
+        assertEquals(device.readSector(0, 14), blockDevice.readBlock(0).slice(256, 256));
+    }
+
+    private TrackSectorDevice randomDevice() {
+        byte[] data = new byte[DiskConstants.APPLE_140KB_DISK];
+        new Random(16).nextBytes(data);
+        return new DosOrderedTrackSectorDevice(DataBufferSource.create(data, "random").get());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device.nibble;
+
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NibbleDiskCodecTest {
+    @Test
+    public void test62RoundTrip() {
+        NibbleDiskCodec codec = new Nibble62Disk525Codec();
+        Random random = new Random(62);
+        byte[] sector = new byte[256];
+        byte[] track = new byte[6656];
+        byte[] decoded = new byte[256];
+        for (int n = 0; n < 100; n++) {
+            random.nextBytes(sector);
+            // Place the field so it (usually) wraps around the end of the track
+            int offset = track.length - random.nextInt(codec.encodedSize() + 1);
+            codec.encode(sector, 0, track, offset);
+            assertTrue(codec.decode(track, offset, decoded, 0));
+            assertArrayEquals(sector, decoded);
+            // The buffer based API agrees with the array based API
+            assertArrayEquals(sector, codec.decode(codec.encode(DataBuffer.wrap(sector))).asBytes());
+        }
+    }
+
+    @Test
+    public void test62EmptySector() {
+        NibbleDiskCodec codec = new Nibble62Disk525Codec();
+        byte[] field = new byte[codec.encodedSize() + 1];
+        codec.encode(new byte[256], 0, field, 0);
+        for (byte b : field) {
+            assertEquals(0x96, b & 0xff);
+        }
+    }
+
+    @Test
+    public void testBadChecksum() {
+        for (NibbleDiskCodec codec : new NibbleDiskCodec[] { new Nibble62Disk525Codec(), new Nibble53Disk525Codec() }) {
+            int[] writeTable = codec.writeTranslateTable();
+            byte[] field = new byte[codec.encodedSize() + 1];
+            for (int i = 0; i < field.length; i++) {
+                field[i] = (byte) writeTable[0];
+            }
+            assertTrue(codec.decode(field, 0, new byte[256], 0));
+            field[10] = (byte) writeTable[1];
+            assertFalse(codec.decode(field, 0, new byte[256], 0));
+            assertNull(codec.decode(DataBuffer.wrap(field)));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device.nibble;
+
+import org.applecommander.device.TrackSectorDevice;
+import org.applecommander.device.TrackSectorNibbleDevice;
+import org.applecommander.hint.Hint;
+import org.applecommander.image.NibbleImage;
+import org.applecommander.source.DataBufferSource;
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NibbleScannerTest {
+    @Test
+    public void testNonstandardProlog() {
+        NibbleImage image = new NibbleImage(DataBufferSource.create(NibbleImage.DISK_SIZE, "test.nib").get());
+        TrackSectorDevice device = TrackSectorNibbleDevice.create(image, 16);
+        device.format();
+        DataBuffer sectorData = DataBuffer.create(TrackSectorDevice.SECTOR_SIZE);
+        sectorData.fill(0x42);
+        device.writeSector(17, 3, sectorData);
+        // "Protect" the disk: D5 AA 96 -> D4 AA 96 and D5 AA AD -> D5 AA AE
+        for (int track = 0; track < image.getTracksOnDevice(); track++) {
+            byte[] data = image.readTrackData(track).asBytes();
+            for (int i = 0; i < data.length - 2; i++) {
+                if ((data[i] & 0xff) == 0xd5 && (data[i+1] & 0xff) == 0xaa) {
+                    if ((data[i+2] & 0xff) == 0x96) data[i] = (byte) 0xd4;
+                    else if ((data[i+2] & 0xff) == 0xad) data[i+2] = (byte) 0xae;
+                }
+            }
+            image.writeTrackData(track, DataBuffer.wrap(data));
+        }
+
+        Map<Integer, Set<Integer>> prologs = NibbleScanner.findAddressPrologs(5, image.readTrackData(5));
+        assertEquals(16, prologs.get(0xd4aa96).size());
+
+        DiskMarker[] diskMarkers = NibbleScanner.identify(image).orElseThrow();
+        assertEquals(image.getTracksOnDevice(), diskMarkers.length);
+        assertArrayEquals(new int[] { 0xd4, 0xaa, 0x96 }, diskMarkers[17].addressProlog());
+        assertArrayEquals(new int[] { 0xd5, 0xaa, 0xae }, diskMarkers[17].dataProlog());
+
+        TrackSectorDevice protectedDevice = TrackSectorNibbleDevice.identify(image).orElseThrow();
+        assertTrue(protectedDevice.is(Hint.NONSTANDARD_NIBBLE_IMAGE));
+        assertEquals(sectorData, protectedDevice.readSector(17, 3));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.device.nibble;
+
+import org.applecommander.device.TrackSectorDevice;
+import org.applecommander.device.TrackSectorNibbleDevice;
+import org.applecommander.image.NibbleImage;
+import org.applecommander.source.DataBufferSource;
+import org.applecommander.source.Source;
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NibbleTrackIndexTest {
+    @Test
+    public void testFormattedTrack() {
+        NibbleImage image = new NibbleImage(DataBufferSource.create(NibbleImage.DISK_SIZE, "test.nib").get());
+        TrackSectorNibbleDevice.create(image, 16).format();
+
+        NibbleTrackIndex index = NibbleTrackIndex.index(image.readTrackData(5), 5, DiskMarker.disk525sector16());
+        assertEquals(16, index.sectorsFound());
+        for (int sector=0; sector<16; sector++) {
+            assertTrue(index.addressFieldOffset(sector) < index.dataFieldOffset(sector));
+        }
+        // Wrong track number means nothing is found
+        assertEquals(0, NibbleTrackIndex.index(image.readTrackData(5), 6, DiskMarker.disk525sector16()).sectorsFound());
+    }
+
+    @Test
+    public void testWrappedDataField() {
+        Source source = DataBufferSource.create(NibbleImage.DISK_SIZE, "test.nib").get();
+        NibbleImage image = new NibbleImage(source);
+        TrackSectorDevice device = TrackSectorNibbleDevice.create(image, 16);
+        device.format();
+        DataBuffer sectorData = DataBuffer.create(TrackSectorDevice.SECTOR_SIZE);
+        for (int i=0; i<sectorData.limit(); i++) {
+            sectorData.putByte(i, i);
+        }
+        device.writeSector(0, 0, sectorData);
+
+        // Rotate track 0 so that the data field for sector 0 straddles the end of the track buffer
+        DataBuffer trackData = image.readTrackData(0);
+        final int dataOffset = NibbleTrackIndex.index(trackData, 0, DiskMarker.disk525sector16()).dataFieldOffset(0);
+        final int rotation = dataOffset + 100;
+        byte[] original = trackData.asBytes();
+        byte[] rotated = new byte[original.length];
+        for (int i=0; i<original.length; i++) {
+            rotated[i] = original[(i + rotation) % original.length];
+        }
+        image.writeTrackData(0, DataBuffer.wrap(rotated));
+
+        NibbleTrackIndex index = NibbleTrackIndex.index(image.readTrackData(0), 0, DiskMarker.disk525sector16());
+        assertEquals(16, index.sectorsFound());
+        assertTrue(index.dataFieldOffset(0) > index.addressFieldOffset(0));
+        DataBuffer readData = TrackSectorNibbleDevice.create(image, 16).readSector(0, 0);
+        assertEquals(sectorData, readData);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.image;
+
+import com.webcodepro.applecommander.testconfig.TestConfig;
+import org.applecommander.capability.Capability;
+import org.applecommander.device.TrackSectorDevice;
+import org.applecommander.device.TrackSectorNibbleDevice;
+import org.applecommander.source.DataBufferSource;
+import org.applecommander.source.Source;
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WozImageTest {
+    private static final String DISKS = TestConfig.getInstance().getDiskDir();
+
+    @ParameterizedTest
+    @ValueSource(strings = { "DOS 3.3 System Master.woz1", "DOS 3.3 System Master.woz2" })
+    public void testWriteSector(String filename) throws IOException {
+        Source source = DataBufferSource.create(Files.readAllBytes(Path.of(DISKS, filename)), filename).get();
+        WozImage image = new WozImage(source);
+        assertTrue(image.can(Capability.WRITE_TRACK));
+        TrackSectorDevice device = TrackSectorNibbleDevice.identify(image).orElseThrow();
+        DataBuffer original = device.readSector(17, 14);
+
+        DataBuffer sectorData = DataBuffer.create(TrackSectorDevice.SECTOR_SIZE);
+        for (int i=0; i<sectorData.limit(); i++) {
+            sectorData.putByte(i, 0xff - i);
+        }
+        device.writeSector(17, 15, sectorData);
+        assertTrue(image.hasPendingChanges());
+        assertFalse(source.hasChanged());
+        image.flush();
+        assertFalse(image.hasPendingChanges());
+        assertTrue(source.hasChanged());
+
+        // Reload from the (updated) bytes to be certain the bitstream was re-encoded
+        Source updated = DataBufferSource.create(source.readAllBytes().asBytes(), filename).get();
+        TrackSectorDevice reloaded = TrackSectorNibbleDevice.identify(new WozImage(updated)).orElseThrow();
+        assertEquals(sectorData, reloaded.readSector(17, 15));
+        assertEquals(original, reloaded.readSector(17, 14));
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(updated.readBytes(12, updated.getSize()-12).asBytes());
+        assertEquals(crc32.getValue(), Integer.toUnsignedLong(updated.readBytes(8, 4).getInt(0)));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.source;
+
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GzipFileSourceTest {
+    @Test
+    public void testInflatesOnDemand(@TempDir Path tempDir) throws IOException {
+        byte[] image = new byte[800 * 1024];
+        new Random(42).nextBytes(image);
+        Path path = tempDir.resolve("image.po.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(path))) {
+            output.write(image);
+        }
+
+        assertInstanceOf(GzipFileSource.class, Sources.create(path).orElseThrow());
+
+        GzipFileSource gzipSource = new GzipFileSource(path);
+        Source source = gzipSource;
+        assertEquals(image.length, source.getSize());
+        assertEquals(0, gzipSource.getInflatedLength());
+
+        // A catalog read only touches the first window
+        assertEquals(DataBuffer.wrap(image).slice(1024, 512), source.readBytes(1024, 512));
+        assertEquals(GzipFileSource.WINDOW_SIZE, gzipSource.getInflatedLength());
+
+        // Writes land in the image
+        source.writeBytes(100_000, DataBuffer.wrap(new byte[] { 1, 2, 3 }));
+        assertTrue(source.hasChanged());
+        assertEquals(3, source.readBytes(100_000, 3).getUnsignedByte(2));
+
+        image[100_000] = 1;
+        image[100_001] = 2;
+        image[100_002] = 3;
+        assertEquals(DataBuffer.wrap(image), source.readAllBytes());
+        assertEquals(image.length, gzipSource.getInflatedLength());
+    }
+
+    @Test
+    public void testSpanningWindows(@TempDir Path tempDir) throws IOException {
+        byte[] image = new byte[140 * 1024];
+        new Random(6).nextBytes(image);
+        Path path = tempDir.resolve("image.dsk.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(path))) {
+            output.write(image);
+        }
+
+        Source source = new GzipFileSource(path);
+        int offset = GzipFileSource.WINDOW_SIZE - 100;
+        assertEquals(DataBuffer.wrap(image).slice(offset, 300), source.readBytes(offset, 300));
+        byte[] patch = new byte[300];
+        new Random(7).nextBytes(patch);
+        source.writeBytes(offset, DataBuffer.wrap(patch));
+        System.arraycopy(patch, 0, image, offset, patch.length);
+        assertEquals(DataBuffer.wrap(image).slice(offset, 300), source.readBytes(offset, 300));
+        assertEquals(DataBuffer.wrap(image), source.readAllBytes());
+        assertThrows(IndexOutOfBoundsException.class, () -> source.readBytes(image.length - 10, 20));
+    }
+
+    @Test
+    public void testMultipleMembers(@TempDir Path tempDir) throws IOException {
+        // Two members inflate as one stream, but the trailer only gives the size of the second
+        byte[] image = new byte[140 * 1024];
+        new Random(9).nextBytes(image);
+        Path path = tempDir.resolve("members.dsk.gz");
+        try (OutputStream file = Files.newOutputStream(path)) {
+            GZIPOutputStream first = new GZIPOutputStream(file);
+            first.write(image, 0, 100 * 1024);
+            first.finish();
+            GZIPOutputStream second = new GZIPOutputStream(file);
+            second.write(image, 100 * 1024, image.length - 100 * 1024);
+            second.finish();
+        }
+
+        GzipFileSource source = new GzipFileSource(path);
+        assertEquals(image.length, source.getSize());
+        assertEquals(image.length, source.getInflatedLength());
+        assertEquals(DataBuffer.wrap(image), source.readAllBytes());
+    }
+
+    @Test
+    public void testDamagedFiles(@TempDir Path tempDir) throws IOException {
+        // The trailer claims nearly 4GB; nothing that size may be allocated
+        byte[] image = new byte[800 * 1024];
+        new Random(8).nextBytes(image);
+        Path bogusSize = tempDir.resolve("bogus.po.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(bogusSize))) {
+            output.write(image);
+        }
+        byte[] compressed = Files.readAllBytes(bogusSize);
+        DataBuffer.wrap(compressed).putUnsignedShort(compressed.length - 4, 0xfff0);
+        DataBuffer.wrap(compressed).putUnsignedShort(compressed.length - 2, 0xffff);
+        Files.write(bogusSize, compressed);
+        GzipFileSource source = new GzipFileSource(bogusSize);
+        assertEquals(DataBuffer.wrap(image).slice(0, 512), source.readBytes(0, 512));
+        assertEquals(GzipFileSource.WINDOW_SIZE, source.getInflatedLength());
+
+        // A gzip header followed by an invalid deflate block falls back to the raw bytes
+        Path corrupt = tempDir.resolve("corrupt.po.gz");
+        byte[] raw = new byte[1024];
+        Arrays.fill(raw, (byte) 0xff);
+        System.arraycopy(new byte[] { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, 0 }, 0, raw, 0, 10);
+        Files.write(corrupt, raw);
+        Source fallback = Sources.create(corrupt).orElseThrow();
+        assertInstanceOf(FileSource.class, fallback);
+        assertEquals(DataBuffer.wrap(raw), fallback.readAllBytes());
+    }
+}
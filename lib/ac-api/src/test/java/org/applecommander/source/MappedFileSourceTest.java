@@ -0,0 +1,62 @@
+/*
+ * AppleCommander - An Apple ][ image utility.
+ * Copyright (C) 2025 by Robert Greene and others
+ * robgreene at users.sourceforge.net
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+package org.applecommander.source;
+
+import com.webcodepro.applecommander.testconfig.TestConfig;
+import org.applecommander.util.DataBuffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedFileSourceTest {
+    private static final String DISKS = TestConfig.getInstance().getDiskDir();
+
+    @Test
+    public void testMatchesFileSource() {
+        Path path = Path.of(DISKS, "Prodos.dsk");
+        FileSource fileSource = new FileSource(path);
+        MappedFileSource mappedSource = new MappedFileSource(path);
+        assertEquals(fileSource.getSize(), mappedSource.getSize());
+        assertEquals(fileSource.readAllBytes(), mappedSource.readAllBytes());
+        assertEquals(fileSource.readBytes(1024, 512), mappedSource.readBytes(1024, 512));
+    }
+
+    @Test
+    public void testWritesDoNotReachFile(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("Prodos.dsk");
+        Files.copy(Path.of(DISKS, "Prodos.dsk"), path);
+        byte[] original = Files.readAllBytes(path);
+
+        MappedFileSource source = new MappedFileSource(path);
+        DataBuffer block = source.readBytes(1024, 512);
+        source.writeBytes(1024, DataBuffer.wrap(new byte[] { 1, 2, 3, 4 }));
+        assertTrue(source.hasChanged());
+        // Slices are views over the mapping
+        assertEquals(1, block.getUnsignedByte(0));
+        assertEquals(4, source.readBytes(1024, 4).getUnsignedByte(3));
+        // ... but the file is untouched until saved
+        assertArrayEquals(original, Files.readAllBytes(path));
+    }
+}